@@ -0,0 +1,112 @@
+package games;
+
+import java.util.Random;
+
+// Microbenchmarks for the Checkers rules: move generation, make/unmake and the game-over
+// check that runs after every move. Positions come from seeded random playouts so runs are
+// comparable; each benchmark warms up before the measured rounds.
+//
+//   java games.CheckersBench [positions] [rounds]
+public final class CheckersBench {
+
+    private static final int WARMUP_ROUNDS = 5;
+    private static final long ROUND_NANOS = 300000000L;
+
+    private final CheckersBoard[] positions;
+    private final int[] moves = new int[CheckersMoveGen.MAX_MOVES];
+    private long sink;
+
+    public CheckersBench(int count, long seed) {
+        positions = new CheckersBoard[count];
+        Random r = new Random(seed);
+        CheckersBoard b = new CheckersBoard();
+        b.reset();
+        for (int i = 0; i < count; i++) {
+            int n = CheckersMoveGen.generate(b, moves, 0);
+            if (n == 0 || r.nextInt(80) == 0) {
+                b.reset();
+                n = CheckersMoveGen.generate(b, moves, 0);
+            }
+            b.apply(moves[r.nextInt(n)]);
+            if (b.getPowerUpSquare() < 0 && r.nextInt(4) == 0) {
+                int sq = r.nextInt(CheckersBoard.SQUARES);
+                if ((b.occupied() & (1 << sq)) == 0) b.setPowerUp(sq, 1 + r.nextInt(2));
+            }
+            positions[i] = new CheckersBoard();
+            positions[i].copyFrom(b);
+        }
+    }
+
+    // Returns operations performed
+    private long moveGen() {
+        long ops = 0;
+        for (CheckersBoard b : positions) {
+            sink += CheckersMoveGen.generate(b, moves, 0);
+            ops++;
+        }
+        return ops;
+    }
+
+    private long makeUnmake() {
+        long ops = 0;
+        for (CheckersBoard b : positions) {
+            int n = CheckersMoveGen.generate(b, moves, 0);
+            for (int i = 0; i < n; i++) {
+                sink += b.make(moves[i]);
+                b.unmake();
+            }
+            ops += n;
+        }
+        return ops;
+    }
+
+    private long gameOver() {
+        long ops = 0;
+        for (CheckersBoard b : positions) {
+            if (b.redCount() == 0 || b.blackCount() == 0 || !CheckersMoveGen.hasMoves(b)) sink++;
+            ops++;
+        }
+        return ops;
+    }
+
+    private long call(int which) {
+        switch (which) {
+            case 0: return moveGen();
+            case 1: return makeUnmake();
+            default: return gameOver();
+        }
+    }
+
+    private void measure(String name, int which, int rounds) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) timed(which);
+        double best = 0, sum = 0;
+        for (int i = 0; i < rounds; i++) {
+            double rate = timed(which);
+            best = Math.max(best, rate);
+            sum += rate;
+        }
+        System.out.println(String.format("%-12s %,15.0f nodes/sec (best %,.0f)", name, sum / rounds, best));
+    }
+
+    private double timed(int which) {
+        long ops = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            ops += call(which);
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < ROUND_NANOS);
+        return ops * 1e9 / elapsed;
+    }
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 4096;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        CheckersBench bench = new CheckersBench(count, 42L);
+        System.out.println(count + " positions, " + rounds + " rounds");
+        bench.measure("movegen", 0, rounds);
+        bench.measure("make/unmake", 1, rounds);
+        bench.measure("game-over", 2, rounds);
+        if (bench.sink == 42) System.out.println();
+    }
+}
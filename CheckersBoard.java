@@ -0,0 +1,268 @@
+package games;
+
+// Bitboard position for CheckersGame.
+// Only the 32 dark squares are stored: square = row * 4 + col / 2, so row 0 holds
+// squares 0..3 (black's back rank) and row 7 holds squares 28..31 (red's back rank).
+// Red moves toward row 0, black toward row 7.
+public final class CheckersBoard {
+
+    public static final int SQUARES = 32;
+    public static final int MAX_PLY = 256;
+
+    // Directions: 0 = up-left, 1 = up-right, 2 = down-left, 3 = down-right
+    static final int[] DIR_ROW = {-1, -1, 1, 1};
+    static final int[] DIR_COL = {-1, 1, -1, 1};
+    static final int[][] STEP = new int[4][SQUARES];
+    static final int[][] JUMP = new int[4][SQUARES];
+
+    static final int RED_START   = 0xFFF00000;
+    static final int BLACK_START = 0x00000FFF;
+    static final int RED_CROWN   = 0x0000000F;
+    static final int BLACK_CROWN = 0xF0000000;
+
+    // Flags returned by apply()
+    public static final int CAPTURED   = 1;
+    public static final int CROWNED    = 2;
+    public static final int POWER_KING = 4;
+    public static final int POWER_SKIP = 8;
+
+    static {
+        for (int d = 0; d < 4; d++) {
+            for (int s = 0; s < SQUARES; s++) {
+                int r = row(s), c = col(s);
+                STEP[d][s] = square(r + DIR_ROW[d], c + DIR_COL[d]);
+                JUMP[d][s] = square(r + 2 * DIR_ROW[d], c + 2 * DIR_COL[d]);
+            }
+        }
+    }
+
+    int red, black, kings;
+    boolean redToMove = true;
+    int powerUpSquare = -1;
+    int powerUpType = 0;
+    long hash;
+
+    // Undo stack: red, black, kings, packed flags per ply
+    private final int[] undo = new int[MAX_PLY * 4];
+    private final long[] undoHash = new long[MAX_PLY];
+    private int ply = 0;
+
+    public static int square(int row, int col) {
+        if (row < 0 || row > 7 || col < 0 || col > 7 || ((row + col) & 1) == 0) return -1;
+        return row * 4 + (col >> 1);
+    }
+
+    public static int row(int sq) {
+        return sq >> 2;
+    }
+
+    public static int col(int sq) {
+        return ((sq & 3) << 1) + (((sq >> 2) & 1) == 0 ? 1 : 0);
+    }
+
+    public void reset() {
+        red = RED_START;
+        black = BLACK_START;
+        kings = 0;
+        redToMove = true;
+        powerUpSquare = -1;
+        powerUpType = 0;
+        ply = 0;
+        hash = CheckersZobrist.hash(this);
+    }
+
+    public void copyFrom(CheckersBoard o) {
+        red = o.red;
+        black = o.black;
+        kings = o.kings;
+        redToMove = o.redToMove;
+        powerUpSquare = o.powerUpSquare;
+        powerUpType = o.powerUpType;
+        hash = o.hash;
+        ply = 0;
+    }
+
+    // Same piece codes the Swing panel always used: 1 red, 2 black, 3 red king, 4 black king
+    public int pieceAt(int row, int col) {
+        int sq = square(row, col);
+        if (sq < 0) return 0;
+        int bit = 1 << sq;
+        int k = (kings & bit) != 0 ? 2 : 0;
+        if ((red & bit) != 0) return 1 + k;
+        if ((black & bit) != 0) return 2 + k;
+        return 0;
+    }
+
+    public boolean isRedToMove() {
+        return redToMove;
+    }
+
+    public int getPowerUpSquare() {
+        return powerUpSquare;
+    }
+
+    public int getPowerUpType() {
+        return powerUpType;
+    }
+
+    public void setPowerUp(int sq, int type) {
+        hash ^= CheckersZobrist.powerUp(powerUpSquare, powerUpType);
+        powerUpSquare = sq;
+        powerUpType = sq < 0 ? 0 : type;
+        hash ^= CheckersZobrist.powerUp(powerUpSquare, powerUpType);
+    }
+
+    public long getHash() {
+        return hash;
+    }
+
+    // Hash of pieces and side to move only, for lookups that should not care where the
+    // current power-up happened to spawn (opening book)
+    public long pieceHash() {
+        return hash ^ CheckersZobrist.powerUp(powerUpSquare, powerUpType);
+    }
+
+    public int redCount() {
+        return Integer.bitCount(red);
+    }
+
+    public int blackCount() {
+        return Integer.bitCount(black);
+    }
+
+    public int occupied() {
+        return red | black;
+    }
+
+    // PDN-style FEN with squares numbered 1-32 and red written as W, e.g.
+    // "W:W21,22,K30:B1,2,K5". An optional ":PK14" or ":PS14" field places a king or skip power-up.
+    public static CheckersBoard fromFen(String fen) {
+        CheckersBoard b = new CheckersBoard();
+        String[] parts = fen.trim().split(":");
+        b.redToMove = parts[0].equalsIgnoreCase("W");
+        for (int i = 1; i < parts.length; i++) {
+            String part = parts[i].trim();
+            if (part.isEmpty()) continue;
+            char kind = Character.toUpperCase(part.charAt(0));
+            if (kind == 'P') {
+                b.powerUpType = Character.toUpperCase(part.charAt(1)) == 'K' ? 1 : 2;
+                b.powerUpSquare = Integer.parseInt(part.substring(2)) - 1;
+                continue;
+            }
+            for (String tok : part.substring(1).split(",")) {
+                tok = tok.trim();
+                if (tok.isEmpty()) continue;
+                boolean king = Character.toUpperCase(tok.charAt(0)) == 'K';
+                int bit = 1 << (Integer.parseInt(king ? tok.substring(1) : tok) - 1);
+                if (kind == 'W') b.red |= bit;
+                else b.black |= bit;
+                if (king) b.kings |= bit;
+            }
+        }
+        b.hash = CheckersZobrist.hash(b);
+        return b;
+    }
+
+    public String toFen() {
+        StringBuilder sb = new StringBuilder(redToMove ? "W" : "B");
+        appendFen(sb, 'W', red);
+        appendFen(sb, 'B', black);
+        if (powerUpSquare >= 0) {
+            sb.append(":P").append(powerUpType == 1 ? 'K' : 'S').append(powerUpSquare + 1);
+        }
+        return sb.toString();
+    }
+
+    private void appendFen(StringBuilder sb, char side, int pieces) {
+        sb.append(':').append(side);
+        boolean first = true;
+        for (int m = pieces; m != 0; m &= m - 1) {
+            int s = Integer.numberOfTrailingZeros(m);
+            if (!first) sb.append(',');
+            if ((kings & (1 << s)) != 0) sb.append('K');
+            sb.append(s + 1);
+            first = false;
+        }
+    }
+
+    // Plays a move without recording undo information. Returns CAPTURED/CROWNED/POWER_* flags.
+    public int apply(int move) {
+        int from = CheckersMoveGen.from(move);
+        int to = CheckersMoveGen.to(move);
+        int fromBit = 1 << from;
+        int toBit = 1 << to;
+        int flags = 0;
+
+        boolean king = (kings & fromBit) != 0;
+        int man = redToMove ? 0 : 1;
+        long[] keys = CheckersZobrist.PIECE[king ? man + 2 : man];
+        hash ^= keys[from] ^ keys[to];
+        // A king's jump chain can end on its own square, so from and to may cancel out
+        if (redToMove) red ^= fromBit ^ toBit;
+        else black ^= fromBit ^ toBit;
+        if (king) kings ^= fromBit ^ toBit;
+
+        int jumps = CheckersMoveGen.jumps(move);
+        for (int i = 0, sq = from; i < jumps; i++) {
+            int d = CheckersMoveGen.direction(move, i);
+            int mid = STEP[d][sq];
+            int midBit = 1 << mid;
+            hash ^= CheckersZobrist.PIECE[((kings & midBit) != 0 ? 2 : 0) + (1 - man)][mid];
+            red &= ~midBit;
+            black &= ~midBit;
+            kings &= ~midBit;
+            sq = JUMP[d][sq];
+        }
+        if (jumps > 0) flags |= CAPTURED;
+
+        if (!king && (toBit & (redToMove ? RED_CROWN : BLACK_CROWN)) != 0) {
+            hash ^= CheckersZobrist.PIECE[man][to] ^ CheckersZobrist.PIECE[man + 2][to];
+            kings |= toBit;
+            king = true;
+            flags |= CROWNED;
+        }
+
+        boolean extraTurn = false;
+        if (to == powerUpSquare) {
+            if (powerUpType == 1) {
+                if (!king) hash ^= CheckersZobrist.PIECE[man][to] ^ CheckersZobrist.PIECE[man + 2][to];
+                kings |= toBit;
+                flags |= POWER_KING;
+            } else {
+                extraTurn = true;
+                flags |= POWER_SKIP;
+            }
+            hash ^= CheckersZobrist.powerUp(powerUpSquare, powerUpType);
+            powerUpSquare = -1;
+            powerUpType = 0;
+        }
+
+        if (!extraTurn) {
+            redToMove = !redToMove;
+            hash ^= CheckersZobrist.SIDE;
+        }
+        return flags;
+    }
+
+    public int make(int move) {
+        int u = ply++ * 4;
+        undo[u] = red;
+        undo[u + 1] = black;
+        undo[u + 2] = kings;
+        undo[u + 3] = (redToMove ? 1 : 0) | ((powerUpSquare + 1) << 1) | (powerUpType << 7);
+        undoHash[ply - 1] = hash;
+        return apply(move);
+    }
+
+    public void unmake() {
+        int u = --ply * 4;
+        red = undo[u];
+        black = undo[u + 1];
+        kings = undo[u + 2];
+        int f = undo[u + 3];
+        redToMove = (f & 1) != 0;
+        powerUpSquare = ((f >> 1) & 63) - 1;
+        powerUpType = f >> 7;
+        hash = undoHash[ply];
+    }
+}
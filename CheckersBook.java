@@ -0,0 +1,97 @@
+package games;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Random;
+
+// Opening book probe. The file (see CheckersBookBuilder) is a 16-byte header followed by
+// 16-byte records (piece hash, move, weight, count) sorted by hash, so a lookup is a binary
+// search straight over the mapped file. Nothing is read until the first probe.
+public final class CheckersBook {
+
+    public static final int MAGIC = 0x434B424B; // "CKBK"
+    public static final int VERSION = 2;
+    public static final int HEADER = 16;
+    public static final int RECORD = 16;
+
+    private final File file;
+    private volatile MappedByteBuffer map;
+    private volatile boolean unavailable;
+    private int records;
+
+    public CheckersBook(File file) {
+        this.file = file;
+    }
+
+    // A legal book move for the position, picked with random in proportion to weight, or 0.
+    // The caller owns random, so a seeded caller gets the same picks on every run.
+    public int probe(CheckersBoard b, int[] buf, Random random) {
+        MappedByteBuffer m = map;
+        if (m == null) {
+            if (unavailable) return 0;
+            m = open();
+            if (m == null) return 0;
+        }
+        long key = b.pieceHash();
+        int lo = 0, hi = records;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (m.getLong(HEADER + mid * RECORD) < key) lo = mid + 1;
+            else hi = mid;
+        }
+
+        int n = CheckersMoveGen.generate(b, buf, 0);
+        long total = 0;
+        for (int i = lo; i < records && m.getLong(HEADER + i * RECORD) == key; i++) {
+            if (legal(m.getInt(HEADER + i * RECORD + 8), buf, n)) total += weight(m, i);
+        }
+        if (total == 0) return 0;
+
+        long pick = (long) (random.nextDouble() * total);
+        for (int i = lo; i < records && m.getLong(HEADER + i * RECORD) == key; i++) {
+            int move = m.getInt(HEADER + i * RECORD + 8);
+            if (!legal(move, buf, n)) continue;
+            pick -= weight(m, i);
+            if (pick < 0) return move;
+        }
+        return 0;
+    }
+
+    private static int weight(MappedByteBuffer m, int i) {
+        return m.getShort(HEADER + i * RECORD + 12) & 0xFFFF;
+    }
+
+    private static boolean legal(int move, int[] buf, int n) {
+        for (int i = 0; i < n; i++) {
+            if (buf[i] == move) return true;
+        }
+        return false;
+    }
+
+    private synchronized MappedByteBuffer open() {
+        if (map != null || unavailable) return map;
+        try {
+            RandomAccessFile raf = new RandomAccessFile(file, "r");
+            try {
+                FileChannel ch = raf.getChannel();
+                if (ch.size() > Integer.MAX_VALUE) throw new IOException("Book larger than 2 GB: " + file);
+                MappedByteBuffer m = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+                long count = m.getLong(8);
+                if (m.getInt(0) != MAGIC || m.getInt(4) != VERSION || HEADER + count * RECORD != ch.size()) {
+                    throw new IOException("Not a version " + VERSION + " book: " + file);
+                }
+                records = (int) count;
+                map = m;
+            } finally {
+                raf.close();
+            }
+        } catch (IOException ex) {
+            if (file.exists()) System.err.println(ex.getMessage());
+            unavailable = true;
+        }
+        return map;
+    }
+}
@@ -0,0 +1,274 @@
+package games;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Random;
+
+// Builds a CheckersBook from PDN game logs (such as CheckersTournament's games.pdn) and/or
+// fresh self-play games. Every position in the first --plies plies of each game adds one
+// sample (piece hash, move, result for the mover). Samples are aggregated per (hash, move).
+// Moves seen fewer than --minCount times are dropped, and the weight is the smoothed score
+// of the move.
+//
+//   java games.CheckersBookBuilder --out book.bin [--plies 16] [--minCount 2]
+//        [--selfplay 1000 --depth 6] [games.pdn ...]
+public final class CheckersBookBuilder {
+
+    private static final int MAX_PLIES = 512;
+
+    private int plies = 16;
+    private int minCount = 2;
+
+    // Samples as parallel primitive arrays; points are 2 win, 1 draw, 0 loss for the mover
+    private long[] keys = new long[1 << 16];
+    private int[] moves = new int[1 << 16];
+    private int[] points = new int[1 << 16];
+    private int size = 0;
+
+    private final int[] buf = new int[CheckersMoveGen.MAX_MOVES];
+
+    private void add(long key, int move, int pts) {
+        if (size == keys.length) {
+            keys = java.util.Arrays.copyOf(keys, size * 2);
+            moves = java.util.Arrays.copyOf(moves, size * 2);
+            points = java.util.Arrays.copyOf(points, size * 2);
+        }
+        keys[size] = key;
+        moves[size] = move;
+        points[size] = pts;
+        size++;
+    }
+
+    // Replays one game's moves; result is a CheckersMatch result code
+    private void addGame(int[] gameMoves, int[] powerUps, int count, int result) {
+        if (result == CheckersMatch.ONGOING) return;
+        CheckersBoard b = new CheckersBoard();
+        b.reset();
+        if (powerUps[0] >= 0) b.setPowerUp(powerUps[0] >> 2, powerUps[0] & 3);
+        for (int i = 0; i < count && i < plies; i++) {
+            boolean red = b.isRedToMove();
+            int pts = result == CheckersMatch.DRAW ? 1 : (result == CheckersMatch.RED_WINS) == red ? 2 : 0;
+            add(b.pieceHash(), gameMoves[i], pts);
+            b.apply(gameMoves[i]);
+            if (powerUps[i + 1] >= 0) b.setPowerUp(powerUps[i + 1] >> 2, powerUps[i + 1] & 3);
+        }
+    }
+
+    // Minimal PDN reader: tag pairs, move tokens, {power K15} comments, result tokens
+    private void readPdn(File f) throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(f), "UTF-8"));
+        int[] gameMoves = new int[MAX_PLIES];
+        int[] powerUps = new int[MAX_PLIES + 1];
+        CheckersBoard b = new CheckersBoard();
+        int count = 0;
+        int result = CheckersMatch.ONGOING;
+        boolean inGame = false, broken = false;
+        int games = 0, skipped = 0;
+        try {
+            StringBuilder comment = null;
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                line = line.trim();
+                if (line.startsWith("[")) {
+                    if (inGame) {
+                        if (count > 0) { addGame(gameMoves, powerUps, count, result); games++; }
+                        inGame = false;
+                    }
+                    if (line.startsWith("[Result ")) result = parseResult(line.substring(8).replace("\"", "").replace("]", "").trim());
+                    continue;
+                }
+                for (String tok : line.split("\\s+")) {
+                    if (tok.isEmpty()) continue;
+                    if (!inGame) {
+                        inGame = true;
+                        broken = false;
+                        b.reset();
+                        count = 0;
+                        java.util.Arrays.fill(powerUps, -1);
+                    }
+                    if (comment != null || tok.startsWith("{")) {
+                        if (comment == null) comment = new StringBuilder();
+                        comment.append(tok).append(' ');
+                        if (tok.endsWith("}")) {
+                            int p = parsePowerUp(comment.toString());
+                            if (p >= 0) {
+                                powerUps[count] = p;
+                                b.setPowerUp(p >> 2, p & 3);
+                            }
+                            comment = null;
+                        }
+                        continue;
+                    }
+                    if (tok.endsWith(".")) continue;
+                    int r = parseResult(tok);
+                    if (r != CheckersMatch.ONGOING || tok.equals("*")) {
+                        if (count > 0) { addGame(gameMoves, powerUps, count, r); games++; }
+                        inGame = false;
+                        result = CheckersMatch.ONGOING;
+                        continue;
+                    }
+                    if (broken) continue;
+                    int move = CheckersMoveGen.parsePdn(b, tok, buf);
+                    if (move == 0 || count == gameMoves.length) {
+                        // Illegal or unreadable move: drop this game
+                        skipped++;
+                        count = 0;
+                        broken = true;
+                        continue;
+                    }
+                    gameMoves[count++] = move;
+                    b.apply(move);
+                }
+            }
+            if (inGame && count > 0) { addGame(gameMoves, powerUps, count, result); games++; }
+        } finally {
+            in.close();
+        }
+        System.out.println(f + ": " + games + " games" + (skipped > 0 ? ", " + skipped + " unreadable" : ""));
+    }
+
+    private static int parseResult(String s) {
+        if (s.equals("1-0") || s.equals("2-0")) return CheckersMatch.RED_WINS;
+        if (s.equals("0-1") || s.equals("0-2")) return CheckersMatch.BLACK_WINS;
+        if (s.equals("1/2-1/2") || s.equals("1-1")) return CheckersMatch.DRAW;
+        return CheckersMatch.ONGOING;
+    }
+
+    // "{power K15}" -> square << 2 | type
+    private static int parsePowerUp(String comment) {
+        String c = comment.replace("{", "").replace("}", "").trim();
+        if (!c.startsWith("power ") || c.length() < 8) return -1;
+        int type = c.charAt(6) == 'K' ? 1 : 2;
+        try {
+            return (Integer.parseInt(c.substring(7).trim()) - 1) << 2 | type;
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+
+    private void selfPlay(int games, int depth, long seed) {
+        CheckersEngine engine = new CheckersEngine(new CheckersTT(32));
+        CheckersMatch match = new CheckersMatch(seed, 100);
+        int[] gameMoves = new int[MAX_PLIES];
+        int[] powerUps = new int[MAX_PLIES + 1];
+        for (int g = 0; g < games; g++) {
+            Random opening = new Random(seed + g);
+            match.reseed(seed + g);
+            match.reset();
+            CheckersBoard pos = match.getPosition();
+            java.util.Arrays.fill(powerUps, -1);
+            powerUps[0] = pos.getPowerUpSquare() << 2 | pos.getPowerUpType();
+            int count = 0;
+            while (!match.isOver() && count < gameMoves.length) {
+                int move;
+                if (count < 4) move = match.getMove(opening.nextInt(match.getMoveCount()));
+                else move = engine.search(pos, 24L * 3600 * 1000, depth);
+                gameMoves[count++] = move;
+                int flags = match.play(move);
+                if ((flags & (CheckersBoard.POWER_KING | CheckersBoard.POWER_SKIP)) != 0 && pos.getPowerUpSquare() >= 0) {
+                    powerUps[count] = pos.getPowerUpSquare() << 2 | pos.getPowerUpType();
+                }
+            }
+            addGame(gameMoves, powerUps, count, match.isOver() ? match.getResult() : CheckersMatch.DRAW);
+        }
+        System.out.println("self-play: " + games + " games at depth " + depth);
+    }
+
+    private void write(File out) throws IOException {
+        sort(0, size - 1);
+
+        // Aggregate runs of equal (key, move) in place
+        int records = 0;
+        for (int i = 0; i < size; ) {
+            int j = i;
+            int pts = 0;
+            while (j < size && keys[j] == keys[i] && moves[j] == moves[i]) pts += points[j++];
+            int count = j - i;
+            if (count >= minCount) {
+                keys[records] = keys[i];
+                moves[records] = moves[i];
+                // Smoothed score in 1/65535ths, count saturates at 65535
+                points[records] = (int) ((pts + 1) * 65535L / (2L * count + 2)) << 16 | Math.min(count, 65535);
+                records++;
+            }
+            i = j;
+        }
+
+        RandomAccessFile raf = new RandomAccessFile(out, "rw");
+        try {
+            raf.setLength(0);
+            FileChannel ch = raf.getChannel();
+            ByteBuffer bb = ByteBuffer.allocate(1 << 16);
+            bb.putInt(CheckersBook.MAGIC).putInt(CheckersBook.VERSION).putLong(records);
+            for (int i = 0; i < records; i++) {
+                if (bb.remaining() < CheckersBook.RECORD) drain(ch, bb);
+                bb.putLong(keys[i]).putInt(moves[i])
+                  .putShort((short) (points[i] >>> 16)).putShort((short) points[i]);
+            }
+            drain(ch, bb);
+        } finally {
+            raf.close();
+        }
+        System.out.println(out + ": " + records + " book moves from " + size + " samples");
+    }
+
+    private static void drain(FileChannel ch, ByteBuffer bb) throws IOException {
+        bb.flip();
+        while (bb.hasRemaining()) ch.write(bb);
+        bb.clear();
+    }
+
+    // Quicksort of the sample arrays by (key, move)
+    private void sort(int lo, int hi) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            long pk = keys[mid];
+            int pm = moves[mid];
+            int i = lo, j = hi;
+            while (i <= j) {
+                while (keys[i] < pk || (keys[i] == pk && moves[i] < pm)) i++;
+                while (keys[j] > pk || (keys[j] == pk && moves[j] > pm)) j--;
+                if (i <= j) swap(i++, j--);
+            }
+            if (j - lo < hi - i) {
+                sort(lo, j);
+                lo = i;
+            } else {
+                sort(i, hi);
+                hi = j;
+            }
+        }
+    }
+
+    private void swap(int a, int b) {
+        long k = keys[a]; keys[a] = keys[b]; keys[b] = k;
+        int t = moves[a]; moves[a] = moves[b]; moves[b] = t;
+        t = points[a]; points[a] = points[b]; points[b] = t;
+    }
+
+    public static void main(String[] args) throws IOException {
+        CheckersBookBuilder builder = new CheckersBookBuilder();
+        File out = new File("book.bin");
+        int selfPlay = 0, depth = 6;
+        long seed = 1;
+        java.util.List<File> inputs = new java.util.ArrayList<File>();
+        for (int i = 0; i < args.length; i++) {
+            String a = args[i];
+            if (a.equals("--out")) out = new File(args[++i]);
+            else if (a.equals("--plies")) builder.plies = Integer.parseInt(args[++i]);
+            else if (a.equals("--minCount")) builder.minCount = Integer.parseInt(args[++i]);
+            else if (a.equals("--selfplay")) selfPlay = Integer.parseInt(args[++i]);
+            else if (a.equals("--depth")) depth = Integer.parseInt(args[++i]);
+            else if (a.equals("--seed")) seed = Long.parseLong(args[++i]);
+            else inputs.add(new File(a));
+        }
+        if (inputs.isEmpty() && selfPlay == 0) {
+            System.err.println("Usage: CheckersBookBuilder --out book.bin [--plies N] [--minCount N]"
+                    + " [--selfplay games --depth D] [games.pdn ...]");
+            System.exit(1);
+        }
+        for (File f : inputs) builder.readPdn(f);
+        if (selfPlay > 0) builder.selfPlay(selfPlay, depth, seed);
+        builder.write(out);
+    }
+}
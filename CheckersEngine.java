@@ -0,0 +1,441 @@
+package games;
+
+// Iterative-deepening alpha-beta search over CheckersBoard.
+// Move ordering: transposition-table move, captures, two killer slots per ply, then the
+// from/to history table.
+// All buffers are allocated once per engine; a search never allocates.
+public final class CheckersEngine {
+
+    public static final int INF = 30000;
+    public static final int WIN = 29000;
+    public static final int MAX_DEPTH = 64;
+
+    // Evaluation weights: man, king, advance per row, back-rank guard
+    public static final int[] DEFAULT_WEIGHTS = {100, 150, 3, 8};
+
+    private static final int TT_MOVE_SCORE = Integer.MAX_VALUE;
+    private static final int CAPTURE_SCORE = 1 << 30;
+    private static final int KILLER1_SCORE = 1 << 29;
+    private static final int KILLER2_SCORE = (1 << 29) - 1;
+
+    private final CheckersTT tt;
+    private final int helperId;
+    private CheckersTablebase tablebase;
+    private CheckersBook book;
+    private final java.util.Random bookRandom = new java.util.Random();
+    private int man = DEFAULT_WEIGHTS[0];
+    private int king = DEFAULT_WEIGHTS[1];
+    private int advance = DEFAULT_WEIGHTS[2];
+    private int backRank = DEFAULT_WEIGHTS[3];
+    private final CheckersBoard board = new CheckersBoard();
+    private final int[] moves = new int[(MAX_DEPTH + 16) * CheckersMoveGen.MAX_MOVES];
+    private final int[] order = new int[(MAX_DEPTH + 16) * CheckersMoveGen.MAX_MOVES];
+    private final int[] killers = new int[(MAX_DEPTH + 16) * 2];
+    private final int[] history = new int[32 * 32];
+
+    private long deadline;
+    private boolean stopped;
+    private volatile boolean abort;
+    private long nodes;
+    private long ttProbes;
+    private long ttHits;
+    private long searchNanos;
+
+    private int bestMove;
+    private int lastDepth;
+    private int lastScore;
+
+    public CheckersEngine() {
+        this(new CheckersTT(16));
+    }
+
+    public CheckersEngine(CheckersTT tt) {
+        this(tt, 0);
+    }
+
+    // Helpers in a parallel search start at staggered depths with a rotated root order,
+    // so they fill the shared table with different parts of the tree.
+    CheckersEngine(CheckersTT tt, int helperId) {
+        this.tt = tt;
+        this.helperId = helperId;
+    }
+
+    // Returns the best move for the side to move in pos, or 0 if there is none.
+    public int search(CheckersBoard pos, long millis, int maxDepth) {
+        if (book != null) {
+            int m = book.probe(pos, moves, bookRandom);
+            if (m != 0) return bookMove(m);
+        }
+        abort = false;
+        tt.newSearch();
+        return run(pos, System.currentTimeMillis() + millis, maxDepth);
+    }
+
+    // Search body shared with CheckersParallelSearch, which owns the table age and abort flag
+    int run(CheckersBoard pos, long deadline, int maxDepth) {
+        long start = System.nanoTime();
+        board.copyFrom(pos);
+        this.deadline = deadline;
+        stopped = false;
+        nodes = 0;
+        ttProbes = 0;
+        ttHits = 0;
+        bestMove = 0;
+        lastDepth = 0;
+        lastScore = 0;
+        java.util.Arrays.fill(killers, 0);
+        for (int i = 0; i < history.length; i++) history[i] >>= 3;
+
+        int n = CheckersMoveGen.generate(board, moves, 0);
+        if (n > 1 && helperId > 0) {
+            int r = helperId % n;
+            for (int i = 0; i < r; i++) {
+                int first = moves[0];
+                System.arraycopy(moves, 1, moves, 0, n - 1);
+                moves[n - 1] = first;
+            }
+        }
+        if (n > 0) bestMove = moves[0];
+        if (n > 1 && tablebase != null && tablebase.covers(board)) {
+            int m = tablebaseMove(n);
+            if (m != 0) {
+                bestMove = m;
+                n = 1;
+            }
+        }
+
+        if (n > 1) {
+            for (int depth = 1 + (helperId & 1); depth <= Math.min(maxDepth, MAX_DEPTH); depth++) {
+                int score = searchRoot(n, depth);
+                if (stopped) break;
+                lastDepth = depth;
+                lastScore = score;
+                if (Math.abs(score) >= WIN - MAX_DEPTH) break;
+            }
+        }
+        searchNanos = System.nanoTime() - start;
+        return bestMove;
+    }
+
+    // Forgets the table, killers and history, so the next search owes nothing to earlier games
+    public void newGame() {
+        tt.clear();
+        java.util.Arrays.fill(killers, 0);
+        java.util.Arrays.fill(history, 0);
+    }
+
+    // Book moves are played without searching
+    public void setBook(CheckersBook book) {
+        this.book = book;
+    }
+
+    // Makes the book picks from here on repeatable
+    public void setBookSeed(long seed) {
+        bookRandom.setSeed(seed);
+    }
+
+    // Records a book move as the result of a zero-node search
+    int bookMove(int move) {
+        bestMove = move;
+        nodes = 0;
+        ttProbes = 0;
+        ttHits = 0;
+        lastDepth = 0;
+        lastScore = 0;
+        searchNanos = 0;
+        return move;
+    }
+
+    // Endgames under the tablebase threshold are looked up instead of searched
+    public void setTablebase(CheckersTablebase tablebase) {
+        this.tablebase = tablebase;
+    }
+
+    // Picks the root move with the best tablebase outcome: fastest win, then a draw, then the
+    // slowest loss. Returns 0 if any child is not covered, so the normal search runs instead.
+    private int tablebaseMove(int n) {
+        boolean red = board.redToMove;
+        int best = 0;
+        int bestScore = -INF;
+        for (int i = 0; i < n; i++) {
+            int m = moves[i];
+            board.make(m);
+            int v = (board.redToMove ? board.red : board.black) == 0 ? -1 : tablebase.probe(board);
+            boolean sameSide = board.redToMove == red;
+            board.unmake();
+            if (v == CheckersTablebase.UNKNOWN) return 0;
+            int score = CheckersTablebase.score(v, 1);
+            if (!sameSide) score = -score;
+            if (score > bestScore) {
+                bestScore = score;
+                best = m;
+            }
+        }
+        lastDepth = 1;
+        lastScore = bestScore;
+        return best;
+    }
+
+    public void setWeights(int[] w) {
+        man = w[0];
+        king = w[1];
+        advance = w[2];
+        backRank = w[3];
+    }
+
+    // "100,150,3,8" -> weights; missing trailing values keep their defaults
+    public static int[] parseWeights(String s) {
+        int[] w = DEFAULT_WEIGHTS.clone();
+        String[] parts = s.split(",");
+        for (int i = 0; i < parts.length && i < w.length; i++) {
+            if (!parts[i].trim().isEmpty()) w[i] = Integer.parseInt(parts[i].trim());
+        }
+        return w;
+    }
+
+    private int probeTablebase(int ply) {
+        if (tablebase == null) return CheckersTablebase.UNKNOWN;
+        int v = tablebase.probe(board);
+        return v == CheckersTablebase.UNKNOWN ? v : CheckersTablebase.score(v, ply);
+    }
+
+    void resetAbort() {
+        abort = false;
+    }
+
+    // Asks a running search to return as soon as possible (safe from any thread)
+    public void stop() {
+        abort = true;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    public long getSearchNanos() {
+        return searchNanos;
+    }
+
+    public long getTTProbes() {
+        return ttProbes;
+    }
+
+    public long getTTHits() {
+        return ttHits;
+    }
+
+    public CheckersTT getTT() {
+        return tt;
+    }
+
+    // One-line summary for tuning the table size, e.g. from -Dcheckers.stats=true
+    public String statsLine() {
+        return "depth " + lastDepth + "  score " + lastScore + "  nodes " + nodes
+                + "  tt " + tt.sizeMegabytes() + "MB hits "
+                + (ttProbes == 0 ? 0 : ttHits * 1000 / ttProbes) / 10.0 + "% full "
+                + tt.hashfull() / 10.0 + "%";
+    }
+
+    public int getLastDepth() {
+        return lastDepth;
+    }
+
+    public int getLastScore() {
+        return lastScore;
+    }
+
+    private int searchRoot(int n, int depth) {
+        // Previous iteration's best move goes first
+        for (int i = 0; i < n; i++) {
+            if (moves[i] == bestMove) {
+                moves[i] = moves[0];
+                moves[0] = bestMove;
+                break;
+            }
+        }
+        int alpha = -INF;
+        int best = moves[0];
+        boolean red = board.redToMove;
+        for (int i = 0; i < n; i++) {
+            int m = moves[i];
+            board.make(m);
+            int v = board.redToMove == red
+                    ? alphaBeta(depth - 1, 1, alpha, INF)
+                    : -alphaBeta(depth - 1, 1, -INF, -alpha);
+            board.unmake();
+            if (stopped) break;
+            if (v > alpha) {
+                alpha = v;
+                best = m;
+            }
+        }
+        if (!stopped) bestMove = best;
+        return alpha;
+    }
+
+    private int alphaBeta(int depth, int ply, int alpha, int beta) {
+        if (depth <= 0 || ply >= MAX_DEPTH) return quiesce(ply, alpha, beta);
+        if ((++nodes & 1023) == 0 && (abort || System.currentTimeMillis() > deadline)) stopped = true;
+        if (stopped) return 0;
+
+        int tb = probeTablebase(ply);
+        if (tb != CheckersTablebase.UNKNOWN) return tb;
+
+        long hash = board.hash;
+        int ttMove = 0;
+        ttProbes++;
+        long entry = tt.probe(hash);
+        if (entry != 0) {
+            ttHits++;
+            ttMove = CheckersTT.move(entry);
+            if (CheckersTT.depth(entry) >= depth) {
+                int s = scoreFromTT(CheckersTT.score(entry), ply);
+                int bound = CheckersTT.bound(entry);
+                if (bound == CheckersTT.EXACT
+                        || (bound == CheckersTT.LOWER && s >= beta)
+                        || (bound == CheckersTT.UPPER && s <= alpha)) {
+                    return s;
+                }
+            }
+        }
+
+        int base = ply * CheckersMoveGen.MAX_MOVES;
+        int n = CheckersMoveGen.generate(board, moves, base);
+        if (n == 0) return -WIN + ply;
+        scoreMoves(base, n, ply, ttMove);
+
+        boolean red = board.redToMove;
+        int alphaOrig = alpha;
+        int best = -INF;
+        int bestM = 0;
+        for (int i = 0; i < n; i++) {
+            int m = pickNext(base, i, n);
+            board.make(m);
+            int v = board.redToMove == red
+                    ? alphaBeta(depth - 1, ply + 1, alpha, beta)
+                    : -alphaBeta(depth - 1, ply + 1, -beta, -alpha);
+            board.unmake();
+            if (stopped) return 0;
+            if (v > best) {
+                best = v;
+                bestM = m;
+                if (v > alpha) {
+                    alpha = v;
+                    if (v >= beta) {
+                        if (!CheckersMoveGen.isCapture(m)) storeKiller(m, ply, depth);
+                        break;
+                    }
+                }
+            }
+        }
+
+        int bound = best >= beta ? CheckersTT.LOWER : best > alphaOrig ? CheckersTT.EXACT : CheckersTT.UPPER;
+        tt.store(hash, bestM, scoreToTT(best, ply), depth, bound);
+        return best;
+    }
+
+    // Win scores are stored relative to the node so they stay valid at any ply
+    private static int scoreToTT(int s, int ply) {
+        if (s >= WIN - 2 * MAX_DEPTH) return s + ply;
+        if (s <= -WIN + 2 * MAX_DEPTH) return s - ply;
+        return s;
+    }
+
+    private static int scoreFromTT(int s, int ply) {
+        if (s >= WIN - 2 * MAX_DEPTH) return s - ply;
+        if (s <= -WIN + 2 * MAX_DEPTH) return s + ply;
+        return s;
+    }
+
+    // Resolves forced captures. Captures are mandatory, so a side that has one cannot stand
+    // pat; a quiet position returns its static evaluation.
+    private int quiesce(int ply, int alpha, int beta) {
+        if ((++nodes & 1023) == 0 && (abort || System.currentTimeMillis() > deadline)) stopped = true;
+        if (stopped) return 0;
+
+        int tb = probeTablebase(ply);
+        if (tb != CheckersTablebase.UNKNOWN) return tb;
+
+        int base = ply * CheckersMoveGen.MAX_MOVES;
+        int n = CheckersMoveGen.generate(board, moves, base);
+        if (n == 0) return -WIN + ply;
+
+        if (!CheckersMoveGen.isCapture(moves[base]) || ply >= MAX_DEPTH + 15) return evaluate();
+
+        boolean red = board.redToMove;
+        for (int i = 0; i < n; i++) {
+            int m = moves[base + i];
+            board.make(m);
+            int v = board.redToMove == red
+                    ? quiesce(ply + 1, alpha, beta)
+                    : -quiesce(ply + 1, -beta, -alpha);
+            board.unmake();
+            if (stopped) return 0;
+            if (v > alpha) {
+                alpha = v;
+                if (v >= beta) break;
+            }
+        }
+        return alpha;
+    }
+
+    private void scoreMoves(int base, int n, int ply, int ttMove) {
+        int k1 = killers[ply * 2];
+        int k2 = killers[ply * 2 + 1];
+        for (int i = base; i < base + n; i++) {
+            int m = moves[i];
+            if (m == ttMove) order[i] = TT_MOVE_SCORE;
+            else if (CheckersMoveGen.isCapture(m)) order[i] = CAPTURE_SCORE + CheckersMoveGen.jumps(m);
+            else if (m == k1) order[i] = KILLER1_SCORE;
+            else if (m == k2) order[i] = KILLER2_SCORE;
+            else order[i] = history[m & 1023];
+        }
+    }
+
+    // Selection step: swaps the best remaining move into slot i
+    private int pickNext(int base, int i, int n) {
+        int bi = base + i;
+        for (int j = bi + 1; j < base + n; j++) {
+            if (order[j] > order[bi]) {
+                int t = order[j]; order[j] = order[bi]; order[bi] = t;
+                t = moves[j]; moves[j] = moves[bi]; moves[bi] = t;
+            }
+        }
+        return moves[bi];
+    }
+
+    private void storeKiller(int m, int ply, int depth) {
+        if (killers[ply * 2] != m) {
+            killers[ply * 2 + 1] = killers[ply * 2];
+            killers[ply * 2] = m;
+        }
+        int h = history[m & 1023] + depth * depth;
+        history[m & 1023] = Math.min(h, KILLER2_SCORE - 1);
+    }
+
+    // Static evaluation from the side to move's point of view
+    private int evaluate() {
+        int redMen = board.red & ~board.kings;
+        int blackMen = board.black & ~board.kings;
+        int score = man * (Integer.bitCount(redMen) - Integer.bitCount(blackMen))
+                + king * (Integer.bitCount(board.red & board.kings) - Integer.bitCount(board.black & board.kings));
+
+        // Men closer to crowning are worth a little more
+        for (int m = redMen; m != 0; m &= m - 1) {
+            score += advance * (7 - CheckersBoard.row(Integer.numberOfTrailingZeros(m)));
+        }
+        for (int m = blackMen; m != 0; m &= m - 1) {
+            score -= advance * CheckersBoard.row(Integer.numberOfTrailingZeros(m));
+        }
+
+        // Holding the back rank keeps the opponent from crowning
+        score += backRank * (Integer.bitCount(redMen & CheckersBoard.BLACK_CROWN)
+                - Integer.bitCount(blackMen & CheckersBoard.RED_CROWN));
+
+        return board.redToMove ? score : -score;
+    }
+}
@@ -13,245 +13,355 @@ public class CheckersGame extends JPanel implements ActionListener {
     private static final int CELL_SIZE = 80;
     private static final int WIDTH = BOARD_SIZE * CELL_SIZE;
     private static final int HEIGHT = BOARD_SIZE * CELL_SIZE + 100;
+    private static final int ENGINE_MILLIS = 1000;
+    private static final int HASH_MB = Integer.getInteger("checkers.hashMb", 64);
+    private static final int ENGINE_THREADS = Integer.getInteger("checkers.threads",
+            Runtime.getRuntime().availableProcessors());
+    private static final boolean ENGINE_STATS = Boolean.getBoolean("checkers.stats");
+    private static final String RECORD_FILE = System.getProperty("checkers.record", "games.ckr");
+
+    private static final Color BACKGROUND = new Color(40, 30, 20);
+    private static final Color LIGHT_SQUARE = new Color(240, 217, 181);
+    private static final Color DARK_SQUARE = new Color(181, 136, 99);
+    private static final Color STATUS_BAR = new Color(0, 0, 0, 220);
+    private static final Color RED_PIECE = new Color(200, 30, 30);
+
+    private final CheckersMatch match = new CheckersMatch(System.nanoTime(), 0);
+    private final CheckersBoard position = match.getPosition();
+
+    // Board squares and the status bar backdrop are cached; handlers repaint only the squares
+    // and areas that changed since the last paint (see refresh())
+    private final StaticLayer boardLayer = new StaticLayer(new StaticLayer.Painter() {
+        public void paintLayer(Graphics2D g, int width, int height) {
+            paintBoard(g, width, height);
+        }
+    });
+    private final DirtyRegion dirty = new DirtyRegion();
+    private final CheckersBoard shownBoard = new CheckersBoard();
 
-    private int[][] board = new int[BOARD_SIZE][BOARD_SIZE];
-    private boolean redTurn = true;
-
-    // Drag support
+    // Drag support; the ghost piece's top-left corner, and where it was last painted
     private Point dragFrom = null;
     private boolean isDragging = false;
+    private int ghostX, ghostY;
+    private boolean ghostShown = false;
+    private int shownGhostX, shownGhostY;
 
     // Keyboard cursor
     private int cursorRow = 0;
     private int cursorCol = 0;
     private Point selected = null;
-    private ArrayList<Point> validMoves = new ArrayList<Point>();
+    private final int[] validMoves = new int[CheckersMoveGen.MAX_MOVES];
+    private final int[] validMoveHints = new int[CheckersMoveGen.MAX_MOVES];
+    private int validMoveCount = 0;
+    private final int[] dragMoves = new int[CheckersMoveGen.MAX_MOVES];
+    // Capture chains a move could mean (same start and end, different pieces taken). They agree
+    // on their first choiceStep landings; picking where the next one lands narrows them down
+    // until one is left
+    private final int[] choices = new int[CheckersMoveGen.MAX_MOVES];
+    private int choiceCount = 0;
+    private int choiceStep = 0;
 
     private boolean gameOver = false;
     private String winner = "";
     private int redPieces = 12;
     private int blackPieces = 12;
 
-    private Point powerUp = null;
-    private int powerUpType = 0;
-    private boolean skipNextTurn = false;
-
     private javax.swing.Timer timer;
     private boolean soundEnabled = true;
 
+    // Mouse and keys go through the queue; inputTimer applies them every INPUT_MILLIS
+    private static final int INPUT_MILLIS = 16;
+    private final InputQueue input = new InputQueue("checkers");
+    private final javax.swing.Timer inputTimer = new javax.swing.Timer(INPUT_MILLIS, new ActionListener() {
+        public void actionPerformed(ActionEvent e) {
+            readInput();
+        }
+    });
+
+    // Computer opponent (plays black)
+    private final CheckersParallelSearch engine = new CheckersParallelSearch(ENGINE_THREADS, HASH_MB);
+
+    // Endgame tablebase (see CheckersTablebaseGen); missing files just mean no hints
+    private final CheckersTablebase tablebase = new CheckersTablebase(
+            new File(System.getProperty("checkers.tb", "tablebase")), Integer.getInteger("checkers.tbPieces", 4));
+    // Opening book (see CheckersBookBuilder); a missing file means the engine always searches
+    private final CheckersBook book = new CheckersBook(new File(System.getProperty("checkers.book", "book.bin")));
+    private final CheckersBoard hintBoard = new CheckersBoard();
+    private boolean computerBlack = false;
+    // Results kept across runs, counted separately for games against the computer
+    private final ScoreStore store = ScoreStore.shared();
+    private boolean thinking = false;
+    private int gameId = 0;
+
     private Clip moveClip, captureClip, kingClip, powerClip, winClip;
 
     public CheckersGame() {
         setPreferredSize(new Dimension(WIDTH, HEIGHT));
-        setBackground(new Color(40, 30, 20));
+        setBackground(BACKGROUND);
         setFocusable(true);
 
+        initRecorder();
         initBoard();
         initSounds();
         timer = new javax.swing.Timer(800, this);
+        engine.setTablebase(tablebase);
+        engine.setBook(book);
 
         // ================== DRAG & DROP ==================
         addMouseListener(new MouseAdapter() {
             public void mousePressed(MouseEvent e) {
-                if (gameOver) return;
-                int row = e.getY() / CELL_SIZE;
-                int col = e.getX() / CELL_SIZE;
-                if (row < 8 && col < 8) {
-                    int piece = board[row][col];
-                    if ((redTurn && (piece == 1 || piece == 3)) || (!redTurn && (piece == 2 || piece == 4))) {
-                        dragFrom = new Point(row, col);
-                        isDragging = true;
-                        repaint();
-                    }
-                }
+                input.offer(InputQueue.MOUSE_PRESSED, e.getX(), e.getY());
             }
 
             public void mouseReleased(MouseEvent e) {
-                if (!isDragging || gameOver) {
-                    isDragging = false;
-                    repaint();
-                    return;
-                }
-                int row = e.getY() / CELL_SIZE;
-                int col = e.getX() / CELL_SIZE;
-                if (row < 8 && col < 8 && dragFrom != null) {
-                    attemptMove(dragFrom.x, dragFrom.y, row, col);
-                }
-                dragFrom = null;
-                isDragging = false;
-                repaint();
+                input.offer(InputQueue.MOUSE_RELEASED, e.getX(), e.getY());
             }
         });
 
         addMouseMotionListener(new MouseMotionAdapter() {
             public void mouseDragged(MouseEvent e) {
-                if (isDragging) repaint();
+                input.offer(InputQueue.MOUSE_DRAGGED, e.getX(), e.getY());
             }
         });
 
         // ================== ARROW KEYS ==================
         addKeyListener(new KeyAdapter() {
             public void keyPressed(KeyEvent e) {
-                if (gameOver) {
-                    if (e.getKeyCode() == KeyEvent.VK_R) restart();
-                    return;
-                }
-                int key = e.getKeyCode();
-                if (key == KeyEvent.VK_UP && cursorRow > 0) cursorRow--;
-                else if (key == KeyEvent.VK_DOWN && cursorRow < 7) cursorRow++;
-                else if (key == KeyEvent.VK_LEFT && cursorCol > 0) cursorCol--;
-                else if (key == KeyEvent.VK_RIGHT && cursorCol < 7) cursorCol++;
-                else if (key == KeyEvent.VK_ENTER || key == KeyEvent.VK_SPACE) {
-                    handleKeyboardSelect();
-                }
-                else if (key == KeyEvent.VK_R) restart();
-                else if (key == KeyEvent.VK_M) soundEnabled = !soundEnabled;
-
-                repaint();
+                input.offer(InputQueue.KEY_PRESSED | e.getKeyCode());
             }
         });
+        inputTimer.start();
 
         requestFocusInWindow();
     }
 
+    // Applies everything queued since the last run, in order; drags only move the ghost, which
+    // is painted once at the end
+    private void readInput() {
+        long now = System.nanoTime();
+        boolean dragged = false;
+        while (input.poll(now)) {
+            int type = input.type();
+            if (type == InputQueue.MOUSE_PRESSED) mousePressed(input.x(), input.y());
+            else if (type == InputQueue.MOUSE_RELEASED) mouseReleased(input.x(), input.y());
+            else if (type == InputQueue.KEY_PRESSED) keyPressed(input.keyCode());
+            else if (type == InputQueue.MOUSE_DRAGGED && isDragging) {
+                moveGhost(input.x(), input.y());
+                dragged = true;
+            }
+        }
+        if (dragged) {
+            markGhost();
+            dirty.paint(this);
+        }
+    }
+
+    private void mousePressed(int x, int y) {
+        if (gameOver || isEngineTurn()) return;
+        int row = y / CELL_SIZE;
+        int col = x / CELL_SIZE;
+        if (choiceCount > 0) {
+            choose(row, col);
+            return;
+        }
+        if (row < 8 && col < 8) {
+            // Only pieces with a legal move (captures are forced) can be picked up. Drags use
+            // their own buffer; a drag drops any keyboard selection
+            if (match.getMovesFrom(CheckersBoard.square(row, col), dragMoves) > 0) {
+                markSelection();
+                selected = null;
+                validMoveCount = 0;
+                dragFrom = new Point(row, col);
+                isDragging = true;
+                moveGhost(x, y);
+                refresh();
+            }
+        }
+    }
+
+    private void mouseReleased(int x, int y) {
+        if (!isDragging || gameOver) {
+            isDragging = false;
+            refresh();
+            return;
+        }
+        int row = y / CELL_SIZE;
+        int col = x / CELL_SIZE;
+        if (row < 8 && col < 8 && dragFrom != null) {
+            attemptMove(dragFrom.x, dragFrom.y, row, col);
+        }
+        dragFrom = null;
+        isDragging = false;
+        refresh();
+    }
+
+    private void keyPressed(int key) {
+        if (gameOver) {
+            if (key == KeyEvent.VK_R) restart();
+            return;
+        }
+        // Cursor and hints as they were, so moving away clears them
+        markSelection();
+        if (key == KeyEvent.VK_UP && cursorRow > 0) cursorRow--;
+        else if (key == KeyEvent.VK_DOWN && cursorRow < 7) cursorRow++;
+        else if (key == KeyEvent.VK_LEFT && cursorCol > 0) cursorCol--;
+        else if (key == KeyEvent.VK_RIGHT && cursorCol < 7) cursorCol++;
+        else if (key == KeyEvent.VK_ENTER || key == KeyEvent.VK_SPACE) {
+            if (choiceCount > 0) choose(cursorRow, cursorCol);
+            else if (!isEngineTurn()) handleKeyboardSelect();
+        }
+        else if (key == KeyEvent.VK_R) restart();
+        else if (key == KeyEvent.VK_M) soundEnabled = !soundEnabled;
+        else if (key == KeyEvent.VK_C) {
+            computerBlack = !computerBlack;
+            selected = null;
+            validMoveCount = 0;
+            markChoices();
+            choiceCount = 0;
+            maybeStartEngine();
+        }
+
+        refresh();
+    }
+
     private void handleKeyboardSelect() {
         if (selected == null) {
-            int p = board[cursorRow][cursorCol];
-            if ((redTurn && (p == 1 || p == 3)) || (!redTurn && (p == 2 || p == 4))) {
+            int n = match.getMovesFrom(CheckersBoard.square(cursorRow, cursorCol), validMoves);
+            if (n > 0) {
                 selected = new Point(cursorRow, cursorCol);
-                validMoves = getValidMoves(cursorRow, cursorCol);
+                validMoveCount = n;
+                computeHints();
                 play(moveClip);
             }
         } else {
-            Point dest = new Point(cursorRow, cursorCol);
-            if (validMoves.contains(dest)) {
-                attemptMove(selected.x, selected.y, cursorRow, cursorCol);
-            }
+            markSelection();
+            attemptMove(selected.x, selected.y, cursorRow, cursorCol);
             selected = null;
-            validMoves.clear();
+            validMoveCount = 0;
         }
-        repaint();
+        refresh();
     }
 
-    private void attemptMove(int fromRow, int fromCol, int toRow, int toCol) {
-        ArrayList<Point> moves = getValidMoves(fromRow, fromCol);
-        Point target = new Point(toRow, toCol);
-        if (moves.contains(target)) {
-            performMove(fromRow, fromCol, toRow, toCol);
-            redTurn = !redTurn;
-            if (skipNextTurn) {
-                skipNextTurn = false;
-                redTurn = !redTurn;
-            }
-            checkGameOver();
-            repaint();
+    // Tablebase outcome of each highlighted move for the mover: 1 win, 0 draw, -1 loss, 2 unknown
+    private void computeHints() {
+        // The tablebase knows nothing of power-ups, so there are no hints while one is out
+        boolean endgame = redPieces + blackPieces <= tablebase.maxPieces() && position.getPowerUpSquare() < 0;
+        for (int i = 0; i < validMoveCount; i++) {
+            validMoveHints[i] = 2;
+            if (!endgame) continue;
+            hintBoard.copyFrom(position);
+            boolean red = hintBoard.isRedToMove();
+            hintBoard.apply(validMoves[i]);
+            int v = hintBoard.redCount() == 0 || hintBoard.blackCount() == 0 ? -1 : tablebase.probe(hintBoard);
+            if (v == CheckersTablebase.UNKNOWN) continue;
+            int sign = Integer.signum(v);
+            validMoveHints[i] = hintBoard.isRedToMove() == red ? sign : -sign;
         }
     }
 
-    private void performMove(int fr, int fc, int tr, int tc) {
-        int piece = board[fr][fc];
-        board[tr][tc] = piece;
-        board[fr][fc] = 0;
-
-        // Capture?
-        if (Math.abs(fr - tr) == 2) {
-            int mr = (fr + tr) / 2;
-            int mc = (fc + tc) / 2;
-            board[mr][mc] = 0;
-            if (redTurn) blackPieces--;
-            else redPieces--;
-            play(captureClip);
-        } else {
-            play(moveClip);
+    private void attemptMove(int fromRow, int fromCol, int toRow, int toCol) {
+        int from = CheckersBoard.square(fromRow, fromCol);
+        int to = CheckersBoard.square(toRow, toCol);
+        if (from < 0 || to < 0) return;
+        int n = match.findMoves(from, to, choices);
+        if (n == 1) {
+            commitMove(choices[0]);
+        } else if (n > 1) {
+            choiceCount = n;
+            choiceStep = 0;
+            skipCommonLandings();
+            markChoices();
         }
+    }
 
-        // King promotion
-        if ((piece == 1 && tr == 7) || (piece == 2 && tr == 0)) {
-            board[tr][tc] = piece + 2;
-            play(kingClip);
+    // Keeps the capture chains whose next landing is the picked square, playing the move once
+    // one is left; a square none of them lands on next drops the move
+    private void choose(int row, int col) {
+        markChoices();
+        int sq = CheckersBoard.square(row, col);
+        int k = 0;
+        for (int i = 0; i < choiceCount; i++) {
+            if (sq >= 0 && CheckersMoveGen.landing(choices[i], choiceStep) == sq) choices[k++] = choices[i];
         }
+        choiceCount = k == 1 ? 0 : k;
+        choiceStep++;
+        skipCommonLandings();
+        if (k == 1) commitMove(choices[0]);
+        else refresh();
+    }
 
-        // Power-up
-        if (powerUp != null && tr == powerUp.x && tc == powerUp.y) {
-            if (powerUpType == 1) {
-                board[tr][tc] = (piece % 2 == 1) ? 3 : 4;
-                play(kingClip);
-            } else {
-                skipNextTurn = true;
+    private void skipCommonLandings() {
+        while (choiceCount > 1 && choiceStep < CheckersMoveGen.MAX_JUMPS) {
+            int sq = CheckersMoveGen.landing(choices[0], choiceStep);
+            for (int i = 1; i < choiceCount; i++) {
+                if (CheckersMoveGen.landing(choices[i], choiceStep) != sq) return;
             }
-            play(powerClip);
-            powerUp = null;
-            spawnPowerUp();
+            choiceStep++;
         }
     }
 
-    private ArrayList<Point> getValidMoves(int row, int col) {
-        ArrayList<Point> moves = new ArrayList<Point>();
-        int piece = board[row][col];
-        if (piece == 0) return moves;
-        boolean isKing = piece >= 3;
-        int dir = (piece == 1 || piece == 3) ? 1 : -1;
-        int[] dirs = isKing ? new int[]{-1, 1} : new int[]{dir};
-
-        for (int d : dirs) {
-            for (int dc = -1; dc <= 1; dc += 2) {
-                int nr = row + d;
-                int nc = col + dc;
-                if (nr >= 0 && nr < 8 && nc >= 0 && nc < 8 && board[nr][nc] == 0) {
-                    moves.add(new Point(nr, nc));
-                }
-                int jr = row + 2 * d;
-                int jc = col + 2 * dc;
-                if (jr >= 0 && jr < 8 && jc >= 0 && jc < 8 && board[jr][jc] == 0) {
-                    int mid = board[row + d][col + dc];
-                    if (mid != 0 && (piece % 2 != mid % 2)) {
-                        moves.add(new Point(jr, jc));
-                    }
+    private void commitMove(int move) {
+        performMove(move);
+        checkGameOver();
+        maybeStartEngine();
+        refresh();
+    }
+
+    private void performMove(int move) {
+        int flags = match.play(move);
+        redPieces = position.redCount();
+        blackPieces = position.blackCount();
+
+        play((flags & CheckersBoard.CAPTURED) != 0 ? captureClip : moveClip);
+        if ((flags & (CheckersBoard.CROWNED | CheckersBoard.POWER_KING)) != 0) play(kingClip);
+        if ((flags & (CheckersBoard.POWER_KING | CheckersBoard.POWER_SKIP)) != 0) play(powerClip);
+    }
+
+    private void checkGameOver() {
+        int result = match.getResult();
+        if (result == CheckersMatch.ONGOING) return;
+        gameOver = true;
+        dirty.addAll();
+        winner = result == CheckersMatch.RED_WINS ? "RED WINS!" : result == CheckersMatch.BLACK_WINS ? "BLACK WINS!" : "DRAW!";
+        store.add(resultKey(result == CheckersMatch.RED_WINS ? "red" : result == CheckersMatch.BLACK_WINS ? "black" : "draw"), 1);
+        play(winClip);
+    }
+
+    // Every game is appended to RECORD_FILE for CheckersReplay; an empty name turns this off
+    private void initRecorder() {
+        if (RECORD_FILE.isEmpty()) return;
+        try {
+            final CheckersRecorder recorder = new CheckersRecorder(new File(RECORD_FILE));
+            match.setRecorder(recorder);
+            Runtime.getRuntime().addShutdownHook(new Thread() {
+                public void run() {
+                    recorder.close();
                 }
-            }
-        }
-        return moves;
-    }
-
-    private void spawnPowerUp() {
-        Random r = new Random();
-        for (int i = 0; i < 50; i++) {
-            int row = r.nextInt(8);
-            int col = r.nextInt(8);
-            if (board[row][col] == 0 && (row + col) % 2 == 1) {
-                powerUp = new Point(row, col);
-                powerUpType = r.nextInt(2) + 1;
-                return;
-            }
+            });
+        } catch (IOException ex) {
+            System.err.println("Not recording games: " + ex.getMessage());
         }
-        powerUp = null;
     }
 
-    private void checkGameOver() {
-        if (redPieces == 0) { gameOver = true; winner = "BLACK WINS!"; play(winClip); }
-        if (blackPieces == 0) { gameOver = true; winner = "RED WINS!"; play(winClip); }
+    private String resultKey(String outcome) {
+        return "checkers." + (computerBlack ? "cpu." : "") + outcome;
     }
 
     private void initBoard() {
-        for (int r = 0; r < 8; r++) {
-            for (int c = 0; c < 8; c++) board[r][c] = 0;
-        }
-        for (int c = 0; c < 8; c += 2) {
-            board[0][c+1] = board[1][c] = board[2][c+1] = 2;
-            board[5][c] = board[6][c+1] = board[7][c] = 1;
-        }
+        match.reset();
         redPieces = blackPieces = 12;
         cursorRow = 0; cursorCol = 0;
-        spawnPowerUp();
     }
 
     private void restart() {
+        gameId++;
+        engine.stop();
+        timer.stop();
         initBoard();
-        redTurn = true;
         selected = null;
-        validMoves.clear();
+        validMoveCount = 0;
+        choiceCount = 0;
         gameOver = false;
-        skipNextTurn = false;
         repaint();
     }
 
@@ -293,24 +403,96 @@ public class CheckersGame extends JPanel implements ActionListener {
         }
     }
 
-    @Override
-    protected void paintComponent(Graphics g) {
-        super.paintComponent(g);
-        Graphics2D g2 = (Graphics2D)g;
-        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+    // ================== REPAINTING ==================
+    // Paints the areas that may have changed: squares whose piece or power-up differs from the
+    // last paint, the cursor and move hints, the drag ghost and the status bar
+    private void refresh() {
+        markBoardChanges();
+        markSelection();
+        markChoices();
+        markGhost();
+        dirty.add(0, HEIGHT - 100, WIDTH, 100);
+        dirty.paint(this);
+    }
 
-        // Draw board
+    private void markSquare(int row, int col) {
+        dirty.add(col * CELL_SIZE, row * CELL_SIZE, CELL_SIZE, CELL_SIZE);
+    }
+
+    private void markBoardChanges() {
         for (int r = 0; r < 8; r++) {
             for (int c = 0; c < 8; c++) {
-                g.setColor((r + c) % 2 == 0 ? new Color(240,217,181) : new Color(181,136,99));
+                if (position.pieceAt(r, c) != shownBoard.pieceAt(r, c)) markSquare(r, c);
+            }
+        }
+        int oldPowerUp = shownBoard.getPowerUpSquare(), powerUp = position.getPowerUpSquare();
+        if (oldPowerUp != powerUp || shownBoard.getPowerUpType() != position.getPowerUpType()) {
+            if (oldPowerUp >= 0) markSquare(CheckersBoard.row(oldPowerUp), CheckersBoard.col(oldPowerUp));
+            if (powerUp >= 0) markSquare(CheckersBoard.row(powerUp), CheckersBoard.col(powerUp));
+        }
+        shownBoard.copyFrom(position);
+    }
+
+    // The cursor square and, with a piece selected, its move targets
+    private void markSelection() {
+        markSquare(cursorRow, cursorCol);
+        if (selected == null) return;
+        for (int i = 0; i < validMoveCount; i++) {
+            int to = CheckersMoveGen.to(validMoves[i]);
+            markSquare(CheckersBoard.row(to), CheckersBoard.col(to));
+        }
+    }
+
+    // Where the ambiguous capture chains land next
+    private void markChoices() {
+        for (int i = 0; i < choiceCount; i++) {
+            int sq = CheckersMoveGen.landing(choices[i], choiceStep);
+            markSquare(CheckersBoard.row(sq), CheckersBoard.col(sq));
+        }
+    }
+
+    private void moveGhost(int x, int y) {
+        ghostX = x - 30;
+        ghostY = y - 30;
+    }
+
+    // Where the ghost was painted and where it is now, with a pixel of antialiasing around it
+    private void markGhost() {
+        if (ghostShown) dirty.add(shownGhostX - 1, shownGhostY - 1, 63, 63);
+        ghostShown = isDragging && dragFrom != null;
+        if (ghostShown) {
+            dirty.add(ghostX - 1, ghostY - 1, 63, 63);
+            shownGhostX = ghostX;
+            shownGhostY = ghostY;
+        }
+    }
+
+    private void paintBoard(Graphics2D g, int width, int height) {
+        g.setColor(BACKGROUND);
+        g.fillRect(0, 0, width, height);
+        for (int r = 0; r < 8; r++) {
+            for (int c = 0; c < 8; c++) {
+                g.setColor((r + c) % 2 == 0 ? LIGHT_SQUARE : DARK_SQUARE);
                 g.fillRect(c * CELL_SIZE, r * CELL_SIZE, CELL_SIZE, CELL_SIZE);
             }
         }
+        g.setColor(STATUS_BAR);
+        g.fillRect(0, HEIGHT-100, WIDTH, 100);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        boardLayer.draw(this, g, 0, 0, WIDTH, HEIGHT);
+        Graphics2D g2 = (Graphics2D)g;
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        Rectangle clip = g.getClipBounds();
 
         // Power-up
-        if (powerUp != null) {
-            int x = powerUp.y * CELL_SIZE + 20;
-            int y = powerUp.x * CELL_SIZE + 20;
+        int powerUp = position.getPowerUpSquare();
+        if (powerUp >= 0) {
+            int powerUpType = position.getPowerUpType();
+            int x = CheckersBoard.col(powerUp) * CELL_SIZE + 20;
+            int y = CheckersBoard.row(powerUp) * CELL_SIZE + 20;
             g.setColor(Color.YELLOW);
             g.fillPolygon(new int[]{x+20,x+26,x+40,x+32,x+35,x+20,x+5,x+8,x+0,x+14},
                           new int[]{y,y+14,y+14,y+25,y+40,y+30,y+40,y+25,y+14,y+14},10);
@@ -322,11 +504,12 @@ public class CheckersGame extends JPanel implements ActionListener {
         // Draw pieces
         for (int r = 0; r < 8; r++) {
             for (int c = 0; c < 8; c++) {
-                int p = board[r][c];
+                int p = position.pieceAt(r, c);
                 if (p == 0) continue;
+                if (clip != null && !clip.intersects(c * CELL_SIZE, r * CELL_SIZE, CELL_SIZE, CELL_SIZE)) continue;
                 int px = c * CELL_SIZE + 10;
                 int py = r * CELL_SIZE + 10;
-                g.setColor(p == 1 || p == 3 ? new Color(200,30,30) : Color.DARK_GRAY);
+                g.setColor(p == 1 || p == 3 ? RED_PIECE : Color.DARK_GRAY);
                 g.fillOval(px, py, CELL_SIZE-20, CELL_SIZE-20);
                 g.setColor(Color.WHITE);
                 g.drawOval(px, py, CELL_SIZE-20, CELL_SIZE-20);
@@ -340,21 +523,18 @@ public class CheckersGame extends JPanel implements ActionListener {
 
         // Dragging ghost piece
         if (isDragging && dragFrom != null) {
-            int p = board[dragFrom.x][dragFrom.y];
+            int p = position.pieceAt(dragFrom.x, dragFrom.y);
             if (p != 0) {
-                Point mouse = getMousePosition();
-                if (mouse != null) {
-                    int mx = mouse.x - 30;
-                    int my = mouse.y - 30;
-                    g.setColor(p == 1 || p == 3 ? new Color(200,30,30,180) : new Color(30,30,30,180));
-                    g.fillOval(mx, my, 60, 60);
-                    g.setColor(Color.WHITE);
-                    g.drawOval(mx, my, 60, 60);
-                    if (p >= 3) {
-                        g.setColor(new Color(255,255,0,200));
-                        g.setFont(new Font("Arial", Font.BOLD, 30));
-                        g.drawString("K", mx+18, my+38);
-                    }
+                int mx = ghostX;
+                int my = ghostY;
+                g.setColor(p == 1 || p == 3 ? new Color(200,30,30,180) : new Color(30,30,30,180));
+                g.fillOval(mx, my, 60, 60);
+                g.setColor(Color.WHITE);
+                g.drawOval(mx, my, 60, 60);
+                if (p >= 3) {
+                    g.setColor(new Color(255,255,0,200));
+                    g.setFont(new Font("Arial", Font.BOLD, 30));
+                    g.drawString("K", mx+18, my+38);
                 }
             }
         }
@@ -367,19 +547,34 @@ public class CheckersGame extends JPanel implements ActionListener {
 
         // Valid moves (keyboard mode)
         if (selected != null) {
-            g.setColor(new Color(0,255,0,80));
-            for (Point m : validMoves) {
-                g.fillOval(m.y * CELL_SIZE + 15, m.x * CELL_SIZE + 15, CELL_SIZE - 30, CELL_SIZE - 30);
+            for (int i = 0; i < validMoveCount; i++) {
+                int hint = validMoveHints[i];
+                g.setColor(hint == 1 ? new Color(0,255,0,160) : hint == 0 ? new Color(255,255,0,120)
+                        : hint == -1 ? new Color(255,0,0,120) : new Color(0,255,0,80));
+                int to = CheckersMoveGen.to(validMoves[i]);
+                g.fillOval(CheckersBoard.col(to) * CELL_SIZE + 15, CheckersBoard.row(to) * CELL_SIZE + 15,
+                        CELL_SIZE - 30, CELL_SIZE - 30);
             }
         }
 
-        // Status bar
-        g.setColor(new Color(0,0,0,220));
-        g.fillRect(0, HEIGHT-100, WIDTH, 100);
+        // Where the ambiguous capture chains part ways
+        if (choiceCount > 0) {
+            g2.setStroke(new BasicStroke(4));
+            g.setColor(Color.CYAN);
+            for (int i = 0; i < choiceCount; i++) {
+                int sq = CheckersMoveGen.landing(choices[i], choiceStep);
+                g.drawOval(CheckersBoard.col(sq) * CELL_SIZE + 12, CheckersBoard.row(sq) * CELL_SIZE + 12,
+                        CELL_SIZE - 24, CELL_SIZE - 24);
+            }
+            g2.setStroke(new BasicStroke(1));
+        }
+
+        // Status bar (its backdrop is part of the board layer)
         g.setColor(Color.WHITE);
         g.setFont(new Font("Arial", Font.BOLD, 24));
-        g.drawString("Turn: " + (redTurn ? "RED" : "BLACK"), 20, HEIGHT-60);
-        g.drawString("Drag pieces  •  Arrows + Enter", 20, HEIGHT-30);
+        g.drawString("Turn: " + (position.isRedToMove() ? "RED" : "BLACK") + (thinking ? "  (thinking...)" : ""), 20, HEIGHT-60);
+        g.drawString(choiceCount > 0 ? "Capture is ambiguous: pick a marked square"
+                : "Drag  •  Arrows + Enter  •  C: CPU " + (computerBlack ? "ON" : "OFF"), 20, HEIGHT-30);
 
         if (gameOver) {
             g.setColor(new Color(0,0,0,200));
@@ -388,11 +583,59 @@ public class CheckersGame extends JPanel implements ActionListener {
             g.setFont(new Font("Arial", Font.BOLD, 80));
             FontMetrics fm = g.getFontMetrics();
             g.drawString(winner, (WIDTH - fm.stringWidth(winner))/2, HEIGHT/2 - 40);
+            g.setColor(Color.WHITE);
+            g.setFont(new Font("Arial", Font.BOLD, 24));
+            String totals = (computerBlack ? "vs CPU  " : "") + "Red " + store.get(resultKey("red"))
+                    + "  •  Black " + store.get(resultKey("black")) + "  •  Draws " + store.get(resultKey("draw"));
+            g.drawString(totals, (WIDTH - g.getFontMetrics().stringWidth(totals))/2, HEIGHT/2 + 10);
         }
     }
 
     public void actionPerformed(ActionEvent e) {
         timer.stop();
+        startEngine();
+    }
+
+    // ================== COMPUTER PLAYER ==================
+    private boolean isEngineTurn() {
+        return computerBlack && !position.isRedToMove();
+    }
+
+    private void maybeStartEngine() {
+        if (!gameOver && isEngineTurn() && !thinking) timer.restart();
+    }
+
+    // Searches on a SwingWorker thread; the move comes back through commitMove on the EDT
+    private void startEngine() {
+        if (gameOver || !isEngineTurn() || thinking) return;
+        thinking = true;
+        final int id = gameId;
+        final CheckersBoard snapshot = new CheckersBoard();
+        snapshot.copyFrom(position);
+        new SwingWorker<Integer, Void>() {
+            protected Integer doInBackground() {
+                int move = engine.search(snapshot, ENGINE_MILLIS, CheckersEngine.MAX_DEPTH);
+                if (ENGINE_STATS) System.out.println(engine.statsLine());
+                return move;
+            }
+
+            protected void done() {
+                thinking = false;
+                int move;
+                try {
+                    move = get();
+                } catch (Exception ex) {
+                    ex.printStackTrace();
+                    return;
+                }
+                if (id != gameId || !isEngineTurn() || !match.isLegal(move)) {
+                    refresh();
+                    return;
+                }
+                commitMove(move);
+            }
+        }.execute();
+        refresh();
     }
 
     public static void main(String[] args) {
@@ -0,0 +1,150 @@
+package games;
+
+import java.util.Random;
+
+// Headless Checkers game: the position plus everything the rules do between moves
+// (power-up spawning from a seeded RNG, win detection, optional draw rule).
+// CheckersGame drives one of these from Swing; CheckersTournament drives thousands.
+// The legal moves of the current position are generated once and cached until the next
+// play() or reset(), so highlighting, input checking and move pickers share one list.
+public final class CheckersMatch {
+
+    public static final int ONGOING = 0;
+    public static final int RED_WINS = 1;
+    public static final int BLACK_WINS = 2;
+    public static final int DRAW = 3;
+
+    private final CheckersBoard position = new CheckersBoard();
+    private final int[] legalMoves = new int[CheckersMoveGen.MAX_MOVES];
+    private int legalCount = -1;
+    private final Random random;
+    private final int drawPlies;
+
+    private int result = ONGOING;
+    private int plies = 0;
+    private int quietPlies = 0;
+    private CheckersRecorder recorder;
+
+    // drawPlies: declare a draw after this many plies without a capture or crowning (0 = never)
+    public CheckersMatch(long seed, int drawPlies) {
+        random = new Random(seed);
+        this.drawPlies = drawPlies;
+        reset();
+    }
+
+    public void reset() {
+        position.reset();
+        legalCount = -1;
+        result = ONGOING;
+        plies = 0;
+        quietPlies = 0;
+        if (recorder != null) recorder.startGame();
+        spawnPowerUp();
+        if (recorder != null) recorder.position(position, 0);
+    }
+
+    // Games started after this call are streamed to the recorder (null stops recording)
+    public void setRecorder(CheckersRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    public void reseed(long seed) {
+        random.setSeed(seed);
+    }
+
+    public CheckersBoard getPosition() {
+        return position;
+    }
+
+    public int getResult() {
+        return result;
+    }
+
+    public boolean isOver() {
+        return result != ONGOING;
+    }
+
+    public int getPlies() {
+        return plies;
+    }
+
+    // Number of legal moves for the side to move (0 once the game is decided that way)
+    public int getMoveCount() {
+        if (legalCount < 0) legalCount = CheckersMoveGen.generate(position, legalMoves, 0);
+        return legalCount;
+    }
+
+    public int getMove(int i) {
+        getMoveCount();
+        return legalMoves[i];
+    }
+
+    public boolean isLegal(int move) {
+        int n = getMoveCount();
+        for (int i = 0; i < n; i++) {
+            if (legalMoves[i] == move) return true;
+        }
+        return false;
+    }
+
+    // Copies the legal moves of the piece on sq into out; returns the count
+    public int getMovesFrom(int sq, int[] out) {
+        int n = getMoveCount();
+        int k = 0;
+        for (int i = 0; i < n; i++) {
+            if (CheckersMoveGen.from(legalMoves[i]) == sq) out[k++] = legalMoves[i];
+        }
+        return k;
+    }
+
+    // Copies the legal moves from -> to into out; returns the count, more than one when
+    // capture chains with the same end points take different pieces
+    public int findMoves(int from, int to, int[] out) {
+        int n = getMoveCount();
+        int k = 0;
+        for (int i = 0; i < n; i++) {
+            int m = legalMoves[i];
+            if (CheckersMoveGen.from(m) == from && CheckersMoveGen.to(m) == to) out[k++] = m;
+        }
+        return k;
+    }
+
+    // Plays a legal move and returns the CheckersBoard flags it produced
+    public int play(int move) {
+        int flags = position.apply(move);
+        legalCount = -1;
+        if (recorder != null) recorder.move(plies, move, flags);
+        plies++;
+        if ((flags & (CheckersBoard.CAPTURED | CheckersBoard.CROWNED | CheckersBoard.POWER_KING)) != 0) quietPlies = 0;
+        else quietPlies++;
+
+        // Power-up was consumed: place the next one
+        if ((flags & (CheckersBoard.POWER_KING | CheckersBoard.POWER_SKIP)) != 0) spawnPowerUp();
+        updateResult();
+        if (recorder != null) {
+            if (result != ONGOING) recorder.result(plies, result);
+            recorder.position(position, plies);
+        }
+        return flags;
+    }
+
+    private void updateResult() {
+        if (position.redCount() == 0) result = BLACK_WINS;
+        else if (position.blackCount() == 0) result = RED_WINS;
+        else if (getMoveCount() == 0) result = position.isRedToMove() ? BLACK_WINS : RED_WINS;
+        else if (drawPlies > 0 && quietPlies >= drawPlies) result = DRAW;
+    }
+
+    private void spawnPowerUp() {
+        int empty = ~position.occupied();
+        int count = Integer.bitCount(empty);
+        if (count == 0) {
+            position.setPowerUp(-1, 0);
+            return;
+        }
+        int pick = random.nextInt(count);
+        for (int i = 0; i < pick; i++) empty &= empty - 1;
+        position.setPowerUp(Integer.numberOfTrailingZeros(empty), random.nextInt(2) + 1);
+        if (recorder != null) recorder.spawn(plies, position.getPowerUpSquare(), position.getPowerUpType());
+    }
+}
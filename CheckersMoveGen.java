@@ -0,0 +1,189 @@
+package games;
+
+// Allocation-free move generator over CheckersBoard.
+// Moves are packed ints: bits 0-4 from, 5-9 to, 10-13 number of jumps, then two bits per
+// jump giving its direction (at most 9 jumps fit, which is the most any chain can make).
+// Captures are mandatory: when any piece can jump, only complete jump chains are generated.
+// A chain ends when no further jump is possible or when a man reaches the crown row.
+public final class CheckersMoveGen {
+
+    public static final int MAX_MOVES = 128;
+    public static final int MAX_JUMPS = 9;
+
+    private CheckersMoveGen() {}
+
+    public static int from(int move) {
+        return move & 31;
+    }
+
+    public static int to(int move) {
+        return (move >> 5) & 31;
+    }
+
+    public static int jumps(int move) {
+        return (move >> 10) & 15;
+    }
+
+    // Direction (0..3, see CheckersBoard) of jump i of the chain
+    public static int direction(int move, int i) {
+        return (move >>> (14 + 2 * i)) & 3;
+    }
+
+    public static boolean isCapture(int move) {
+        return (move & (15 << 10)) != 0;
+    }
+
+    // Square a capture chain lands on after jump i, the last one's for i past the end
+    public static int landing(int move, int i) {
+        int s = from(move);
+        for (int j = 0; j <= i && j < jumps(move); j++) s = CheckersBoard.JUMP[direction(move, j)][s];
+        return s;
+    }
+
+    // PDN notation with squares numbered 1-32, e.g. "22-18", "15x22" or "15x22x29"
+    public static String toPdn(int move) {
+        if (!isCapture(move)) return (from(move) + 1) + "-" + (to(move) + 1);
+        StringBuilder sb = new StringBuilder().append(from(move) + 1);
+        int sq = from(move);
+        for (int i = 0; i < jumps(move); i++) {
+            sq = CheckersBoard.JUMP[direction(move, i)][sq];
+            sb.append('x').append(sq + 1);
+        }
+        return sb.toString();
+    }
+
+    // Legal move matching a PDN token such as "22-18", "15x22" or "15x22x29", or 0.
+    // A capture given as just "from x to" matches the first chain with those end points.
+    public static int parsePdn(CheckersBoard b, String token, int[] buf) {
+        String[] parts = token.split("[-x]");
+        if (parts.length < 2) return 0;
+        int[] squares = new int[parts.length];
+        try {
+            for (int i = 0; i < parts.length; i++) squares[i] = Integer.parseInt(parts[i]) - 1;
+        } catch (NumberFormatException ex) {
+            return 0;
+        }
+        for (int sq : squares) {
+            if (sq < 0 || sq >= CheckersBoard.SQUARES) return 0;
+        }
+        int n = generateFrom(b, squares[0], buf, 0);
+        for (int i = 0; i < n; i++) {
+            int m = buf[i];
+            if (to(m) != squares[squares.length - 1]) continue;
+            if (squares.length == 2 || matchesPath(m, squares)) return m;
+        }
+        return 0;
+    }
+
+    private static boolean matchesPath(int move, int[] squares) {
+        if (jumps(move) != squares.length - 1) return false;
+        int sq = from(move);
+        for (int i = 0; i < jumps(move); i++) {
+            sq = CheckersBoard.JUMP[direction(move, i)][sq];
+            if (sq != squares[i + 1]) return false;
+        }
+        return true;
+    }
+
+    // Fills moves[start..] with every legal move for the side to move; returns the count
+    public static int generate(CheckersBoard b, int[] moves, int start) {
+        int own = b.redToMove ? b.red : b.black;
+        int n = captures(b, own, moves, start);
+        if (n == start) n = quiets(b, own, moves, n);
+        return n - start;
+    }
+
+    // Same as generate() but only the moves of the piece on sq. A piece that cannot jump
+    // has no moves while another piece of the same side can.
+    public static int generateFrom(CheckersBoard b, int sq, int[] moves, int start) {
+        int n = start + generate(b, moves, start);
+        int k = start;
+        for (int i = start; i < n; i++) {
+            if (from(moves[i]) == sq) moves[k++] = moves[i];
+        }
+        return k - start;
+    }
+
+    public static boolean hasMoves(CheckersBoard b) {
+        int own = b.redToMove ? b.red : b.black;
+        int opp = b.redToMove ? b.black : b.red;
+        int empty = ~(b.red | b.black);
+        int manDir = b.redToMove ? 0 : 2;
+        while (own != 0) {
+            int s = Integer.numberOfTrailingZeros(own);
+            own &= own - 1;
+            boolean king = (b.kings & (1 << s)) != 0;
+            int d0 = king ? 0 : manDir;
+            int d1 = king ? 4 : manDir + 2;
+            for (int d = d0; d < d1; d++) {
+                int t = CheckersBoard.STEP[d][s];
+                if (t < 0) continue;
+                if (((empty >>> t) & 1) != 0) return true;
+                int j = CheckersBoard.JUMP[d][s];
+                if (j >= 0 && ((empty >>> j) & 1) != 0 && ((opp >>> t) & 1) != 0) return true;
+            }
+        }
+        return false;
+    }
+
+    private static int captures(CheckersBoard b, int pieces, int[] moves, int n) {
+        int opp = b.redToMove ? b.black : b.red;
+        int empty = ~(b.red | b.black);
+        int crown = b.redToMove ? CheckersBoard.RED_CROWN : CheckersBoard.BLACK_CROWN;
+        int manDir = b.redToMove ? 0 : 2;
+        while (pieces != 0) {
+            int s = Integer.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            boolean king = (b.kings & (1 << s)) != 0;
+            // The moving piece leaves its square, so a king may pass back over it
+            n = chain(s, s, king ? -1 : manDir, king ? 0 : crown, opp, empty | (1 << s), 0, 0, moves, n);
+        }
+        return n;
+    }
+
+    // Extends the jump chain that has reached sq. manDir is -1 for a king; captured pieces
+    // stay on the board until the move is complete but cannot be jumped twice.
+    private static int chain(int from, int sq, int manDir, int crown, int opp, int empty,
+                             int taken, int path, int[] moves, int n) {
+        int count = Integer.bitCount(taken);
+        int d0 = manDir < 0 ? 0 : manDir;
+        int d1 = manDir < 0 ? 4 : manDir + 2;
+        int before = n;
+        if (count < MAX_JUMPS) {
+            for (int d = d0; d < d1; d++) {
+                int j = CheckersBoard.JUMP[d][sq];
+                if (j < 0 || ((empty >>> j) & 1) == 0) continue;
+                int mid = CheckersBoard.STEP[d][sq];
+                if (((opp & ~taken) >>> mid & 1) == 0) continue;
+                int next = path | d << (14 + 2 * count);
+                if (((crown >>> j) & 1) != 0) {
+                    // Crowning ends the move
+                    moves[n++] = from | j << 5 | (count + 1) << 10 | next;
+                } else {
+                    n = chain(from, j, manDir, crown, opp, empty, taken | 1 << mid, next, moves, n);
+                }
+            }
+        }
+        if (n == before && count > 0) moves[n++] = from | sq << 5 | count << 10 | path;
+        return n;
+    }
+
+    private static int quiets(CheckersBoard b, int pieces, int[] moves, int n) {
+        int empty = ~(b.red | b.black);
+        int manDir = b.redToMove ? 0 : 2;
+        while (pieces != 0) {
+            int s = Integer.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            boolean king = (b.kings & (1 << s)) != 0;
+            int d0 = king ? 0 : manDir;
+            int d1 = king ? 4 : manDir + 2;
+            for (int d = d0; d < d1; d++) {
+                int t = CheckersBoard.STEP[d][s];
+                if (t >= 0 && ((empty >>> t) & 1) != 0) {
+                    moves[n++] = s | (t << 5);
+                }
+            }
+        }
+        return n;
+    }
+}
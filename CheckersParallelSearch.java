@@ -0,0 +1,147 @@
+package games;
+
+import java.util.concurrent.*;
+
+// Lazy SMP driver: N CheckersEngine workers search the same root and share one
+// transposition table. The calling thread runs worker 0; helpers run on a fixed pool
+// that lives as long as this object. The answer comes from the worker that finished
+// the deepest iteration.
+public final class CheckersParallelSearch {
+
+    private final CheckersTT tt;
+    private final CheckersEngine[] workers;
+    private final ExecutorService pool;
+    private final Future<?>[] pending;
+    private final int[] bookBuf = new int[CheckersMoveGen.MAX_MOVES];
+    private CheckersBook book;
+    private final java.util.Random bookRandom = new java.util.Random();
+    // Set by stop(), so one that lands while the workers' flags are being reset still counts
+    private volatile boolean stopRequested;
+
+    public CheckersParallelSearch(int threads, int hashMb) {
+        threads = Math.max(1, threads);
+        tt = new CheckersTT(hashMb);
+        workers = new CheckersEngine[threads];
+        for (int i = 0; i < threads; i++) workers[i] = new CheckersEngine(tt, i);
+        pending = new Future<?>[threads];
+        pool = threads == 1 ? null : Executors.newFixedThreadPool(threads - 1, new ThreadFactory() {
+            private int count = 0;
+
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "checkers-search-" + (++count));
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    public int getThreads() {
+        return workers.length;
+    }
+
+    public void setWeights(int[] weights) {
+        for (CheckersEngine w : workers) w.setWeights(weights);
+    }
+
+    public void setTablebase(CheckersTablebase tablebase) {
+        for (CheckersEngine w : workers) w.setTablebase(tablebase);
+    }
+
+    public void setBook(CheckersBook book) {
+        this.book = book;
+    }
+
+    public void setBookSeed(long seed) {
+        bookRandom.setSeed(seed);
+    }
+
+    public CheckersTT getTT() {
+        return tt;
+    }
+
+    public int search(CheckersBoard pos, long millis, int maxDepth) {
+        if (book != null) {
+            int m = book.probe(pos, bookBuf, bookRandom);
+            if (m != 0) {
+                for (CheckersEngine w : workers) w.bookMove(m);
+                return m;
+            }
+        }
+        stopRequested = false;
+        for (CheckersEngine w : workers) w.resetAbort();
+        tt.newSearch();
+        final CheckersBoard root = pos;
+        final long deadline = System.currentTimeMillis() + millis;
+        final int depth = maxDepth;
+
+        for (int i = 1; i < workers.length; i++) {
+            final CheckersEngine w = workers[i];
+            pending[i] = pool.submit(new Runnable() {
+                public void run() {
+                    w.run(root, deadline, depth);
+                }
+            });
+        }
+        if (stopRequested) for (CheckersEngine w : workers) w.stop();
+        int best = workers[0].run(root, deadline, depth);
+        int bestDepth = workers[0].getLastDepth();
+
+        for (int i = 1; i < workers.length; i++) workers[i].stop();
+        for (int i = 1; i < workers.length; i++) {
+            try {
+                pending[i].get();
+            } catch (Exception ex) {
+                ex.printStackTrace();
+                continue;
+            }
+            if (workers[i].getLastDepth() > bestDepth) {
+                bestDepth = workers[i].getLastDepth();
+                best = workers[i].getBestMove();
+            }
+        }
+        return best;
+    }
+
+    // Safe from any thread; the search returns shortly after
+    public void stop() {
+        stopRequested = true;
+        for (CheckersEngine w : workers) w.stop();
+    }
+
+    public void shutdown() {
+        stop();
+        if (pool != null) pool.shutdownNow();
+    }
+
+    public long getNodes() {
+        long n = 0;
+        for (CheckersEngine w : workers) n += w.getNodes();
+        return n;
+    }
+
+    // Depth, total and per-thread nodes/sec, and table hit rate for the last search
+    public String statsLine() {
+        StringBuilder sb = new StringBuilder();
+        long nodes = 0, probes = 0, hits = 0, nanos = 1;
+        int depth = 0;
+        for (CheckersEngine w : workers) {
+            nodes += w.getNodes();
+            probes += w.getTTProbes();
+            hits += w.getTTHits();
+            nanos = Math.max(nanos, w.getSearchNanos());
+            depth = Math.max(depth, w.getLastDepth());
+        }
+        sb.append("depth ").append(depth)
+          .append("  threads ").append(workers.length)
+          .append("  nps ").append(nodes * 1000000000L / nanos)
+          .append("  tt hits ").append((probes == 0 ? 0 : hits * 1000 / probes) / 10.0).append('%')
+          .append(" full ").append(tt.hashfull() / 10.0).append('%')
+          .append("  per thread [");
+        for (int i = 0; i < workers.length; i++) {
+            CheckersEngine w = workers[i];
+            if (i > 0) sb.append(' ');
+            sb.append(w.getNodes() * 1000000000L / Math.max(1, w.getSearchNanos()));
+        }
+        return sb.append(']').toString();
+    }
+}
@@ -0,0 +1,89 @@
+package games;
+
+// Perft driver for the Checkers rules: counts leaf nodes of the full move tree so any
+// change to CheckersMoveGen or CheckersBoard.make/unmake shows up as a wrong number.
+//
+//   java games.CheckersPerft                 run the stored suite
+//   java games.CheckersPerft 9               start position, depths 1..9
+//   java games.CheckersPerft 6 "W:W...:B..." given FEN, depths 1..6
+public final class CheckersPerft {
+
+    static final String START_FEN = "W:W21,22,23,24,25,26,27,28,29,30,31,32:B1,2,3,4,5,6,7,8,9,10,11,12";
+
+    // FEN, depth, expected leaf count. The start position matches the published English
+    // draughts numbers; the rest cover power-ups, kings and multi-jump chains.
+    private static final Object[][] SUITE = {
+        {START_FEN, 10, 18391564L},
+        {START_FEN + ":PK15", 8, 977546L},
+        {START_FEN + ":PS18", 8, 968408L},
+        {"B:W15,18,22,23,25,K27:B6,9,10,11,14,K24", 11, 844816L},
+        {"W:WK14,K19,26:BK5,10,K23", 9, 323765L},
+        {"W:W9,10,13:B21,22,26", 8, 93434L},
+        {"W:WK30,27:B6,7,14,15,22,23,K5", 9, 96573L},
+    };
+
+    private final CheckersBoard board;
+    private final int[] moves = new int[(CheckersBoard.MAX_PLY + 1) * CheckersMoveGen.MAX_MOVES];
+
+    public CheckersPerft(CheckersBoard board) {
+        this.board = board;
+    }
+
+    public long perft(int depth) {
+        return perft(depth, 0);
+    }
+
+    private long perft(int depth, int base) {
+        int n = CheckersMoveGen.generate(board, moves, base);
+        if (depth <= 1) return depth == 1 ? n : 1;
+        long total = 0;
+        for (int i = 0; i < n; i++) {
+            board.make(moves[base + i]);
+            total += perft(depth - 1, base + n);
+            board.unmake();
+        }
+        return total;
+    }
+
+    private static long[] run(String fen, int depth) {
+        CheckersPerft p = new CheckersPerft(CheckersBoard.fromFen(fen));
+        long start = System.nanoTime();
+        long nodes = p.perft(depth);
+        return new long[] {nodes, Math.max(1, System.nanoTime() - start)};
+    }
+
+    private static String rate(long nodes, long nanos) {
+        return String.format("%,d nodes/sec", nodes * 1000000000L / nanos);
+    }
+
+    public static void main(String[] args) {
+        if (args.length > 0) {
+            int depth = Integer.parseInt(args[0]);
+            String fen = args.length > 1 ? args[1] : START_FEN;
+            System.out.println(fen);
+            for (int d = 1; d <= depth; d++) {
+                long[] r = run(fen, d);
+                System.out.println(String.format("perft(%d) = %,d   %s", d, r[0], rate(r[0], r[1])));
+            }
+            return;
+        }
+
+        int failed = 0;
+        long totalNodes = 0, totalNanos = 0;
+        for (Object[] test : SUITE) {
+            String fen = (String) test[0];
+            int depth = (Integer) test[1];
+            long expected = (Long) test[2];
+            long[] r = run(fen, depth);
+            boolean ok = r[0] == expected;
+            if (!ok) failed++;
+            totalNodes += r[0];
+            totalNanos += r[1];
+            System.out.println(String.format("%s  depth %d  %,d%s  %s  %s", ok ? "ok  " : "FAIL", depth, r[0],
+                    ok ? "" : String.format(" (expected %,d)", expected), rate(r[0], r[1]), fen));
+        }
+        System.out.println(String.format("%d/%d passed, %s", SUITE.length - failed, SUITE.length,
+                rate(totalNodes, Math.max(1, totalNanos))));
+        if (failed > 0) System.exit(1);
+    }
+}
@@ -0,0 +1,149 @@
+package games;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+// Streams CheckersMatch games to disk as fixed-width binary records, many games per file.
+// The record file is a 16-byte header then 8-byte records: type byte, argument byte,
+// unsigned 16-bit ply, 32-bit payload. A sidecar ".idx" file holds a 32-byte position
+// snapshot at ply 0 of every game and every INTERVAL plies after that, each pointing at the
+// record that follows it, so CheckersReplay can reach any ply by replaying at most
+// INTERVAL - 1 moves. Both files are appended through one buffer each and flushed at the
+// end of every game.
+public final class CheckersRecorder {
+
+    public static final int MAGIC = 0x434B4752;       // "CKGR"
+    public static final int INDEX_MAGIC = 0x434B4749; // "CKGI"
+    public static final int VERSION = 1;
+    public static final int HEADER = 16;
+    public static final int RECORD = 8;
+    public static final int SNAPSHOT = 32;
+    public static final int INTERVAL = 16;
+
+    // Record types; the argument byte and payload are noted per type
+    public static final int GAME = 1;   // payload: game number in this file
+    public static final int MOVE = 2;   // argument: CheckersBoard flags, payload: move
+    public static final int SPAWN = 3;  // argument: power-up type, payload: square
+    public static final int SKIP = 4;   // the mover keeps the turn (skip power-up)
+    public static final int RESULT = 5; // argument: CheckersMatch result
+
+    private final RandomAccessFile recordFile;
+    private final RandomAccessFile indexFile;
+    private final FileChannel records;
+    private final FileChannel index;
+    private final ByteBuffer recordBuf = ByteBuffer.allocateDirect(1 << 16);
+    private final ByteBuffer indexBuf = ByteBuffer.allocateDirect(1 << 12);
+    private long recordPos;
+    private int games;
+
+    // Appends to file (and file.idx), creating them if needed
+    public CheckersRecorder(File file) throws IOException {
+        recordFile = new RandomAccessFile(file, "rw");
+        indexFile = new RandomAccessFile(indexFile(file), "rw");
+        records = recordFile.getChannel();
+        index = indexFile.getChannel();
+        try {
+            recordPos = open(records, MAGIC, RECORD);
+            long snapshots = (open(index, INDEX_MAGIC, SNAPSHOT) - HEADER) / SNAPSHOT;
+            // Continue the game numbering of the existing snapshots
+            ByteBuffer bb = ByteBuffer.allocate(SNAPSHOT);
+            if (snapshots > 0) {
+                index.read(bb, HEADER + (snapshots - 1) * SNAPSHOT);
+                games = bb.getInt(8) + 1;
+            }
+        } catch (IOException ex) {
+            close();
+            throw ex;
+        }
+    }
+
+    public static File indexFile(File file) {
+        return new File(file.getPath() + ".idx");
+    }
+
+    // Writes the header of a new file or checks an existing one; returns the append offset
+    private static long open(FileChannel ch, int magic, int unit) throws IOException {
+        if (ch.size() < HEADER) {
+            ByteBuffer h = ByteBuffer.allocate(HEADER);
+            h.putInt(magic).putInt(VERSION).putInt(unit).putInt(INTERVAL).flip();
+            ch.truncate(0);
+            ch.write(h, 0);
+        }
+        ByteBuffer h = ByteBuffer.allocate(HEADER);
+        ch.read(h, 0);
+        if (h.getInt(0) != magic || h.getInt(4) != VERSION || h.getInt(8) != unit || h.getInt(12) != INTERVAL) {
+            throw new IOException("Not a version " + VERSION + " game record file");
+        }
+        // Drop a partial record left by a crash
+        long end = HEADER + (ch.size() - HEADER) / unit * unit;
+        ch.truncate(end);
+        ch.position(end);
+        return end;
+    }
+
+    public void startGame() {
+        record(GAME, 0, 0, games++);
+    }
+
+    public void move(int ply, int move, int flags) {
+        record(MOVE, flags, ply, move);
+        if ((flags & CheckersBoard.POWER_SKIP) != 0) record(SKIP, 0, ply, 0);
+    }
+
+    public void spawn(int ply, int square, int type) {
+        record(SPAWN, type, ply, square);
+    }
+
+    public void result(int ply, int result) {
+        record(RESULT, result, ply, 0);
+        flush();
+    }
+
+    // Called with the position after every ply; snapshots the ones on the interval
+    public void position(CheckersBoard b, int ply) {
+        if (ply % INTERVAL != 0) return;
+        if (indexBuf.remaining() < SNAPSHOT) flush();
+        indexBuf.putLong(recordPos + recordBuf.position())
+                .putInt(games - 1).putInt(ply)
+                .putInt(b.red).putInt(b.black).putInt(b.kings)
+                .putInt((b.redToMove ? 1 : 0) | (b.powerUpSquare + 1) << 1 | b.powerUpType << 7);
+    }
+
+    private void record(int type, int arg, int ply, int payload) {
+        if (recordBuf.remaining() < RECORD) {
+            recordPos += recordBuf.position();
+            drain(records, recordBuf);
+        }
+        recordBuf.put((byte) type).put((byte) arg).putShort((short) Math.min(ply, 0xFFFF)).putInt(payload);
+    }
+
+    // Writes out everything buffered so far; records go first so no snapshot points past them
+    public void flush() {
+        recordPos += recordBuf.position();
+        drain(records, recordBuf);
+        drain(index, indexBuf);
+    }
+
+    private static void drain(FileChannel ch, ByteBuffer bb) {
+        bb.flip();
+        try {
+            while (bb.hasRemaining()) ch.write(bb);
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+        bb.clear();
+    }
+
+    public void close() {
+        if (records.isOpen()) flush();
+        try {
+            recordFile.close();
+            indexFile.close();
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+}
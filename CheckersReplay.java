@@ -0,0 +1,341 @@
+package games;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.*;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+// Reader and viewer for CheckersRecorder files. The record file and its index are mapped,
+// and a seek starts from the nearest snapshot, so any ply of any game costs at most
+// INTERVAL - 1 moves of replay. Without an index file the snapshots are rebuilt in memory
+// with one pass over the records. A single mapping limits a record file to 2 GB.
+//
+//   java games.CheckersReplay games.ckr [game]    viewer: Left/Right ply, Up/Down 10 plies,
+//                                                 PgUp/PgDn game, Home/End
+//   java games.CheckersReplay --scan games.ckr    totals over the whole archive
+public final class CheckersReplay {
+
+    private static final int H = CheckersRecorder.HEADER;
+    private static final int R = CheckersRecorder.RECORD;
+    private static final int S = CheckersRecorder.SNAPSHOT;
+
+    private final MappedByteBuffer records;
+    private final long end;
+    private ByteBuffer snapshots;
+    private int snapshotCount;
+    private int games;
+    private int[] firstSnapshot;
+    private int[] plies;
+    private int[] results;
+
+    public CheckersReplay(File file) throws IOException {
+        records = map(file, CheckersRecorder.MAGIC, R);
+        end = H + (records.capacity() - H) / R * R;
+        File idx = CheckersRecorder.indexFile(file);
+        if (idx.exists()) {
+            snapshots = map(idx, CheckersRecorder.INDEX_MAGIC, S);
+            snapshotCount = (snapshots.capacity() - H) / S;
+            // Snapshots past the end of the records (crash before the flush) are unusable
+            while (snapshotCount > 0 && snapshots.getLong(H + (snapshotCount - 1) * S) > end) snapshotCount--;
+        } else {
+            rebuildIndex();
+        }
+        buildGameTable();
+    }
+
+    private static MappedByteBuffer map(File file, int magic, int unit) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel ch = raf.getChannel();
+            if (ch.size() > Integer.MAX_VALUE) throw new IOException("File larger than 2 GB: " + file);
+            MappedByteBuffer m = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            if (m.capacity() < H || m.getInt(0) != magic || m.getInt(4) != CheckersRecorder.VERSION
+                    || m.getInt(8) != unit || m.getInt(12) != CheckersRecorder.INTERVAL) {
+                throw new IOException("Not a version " + CheckersRecorder.VERSION + " game record: " + file);
+            }
+            return m;
+        } finally {
+            raf.close();
+        }
+    }
+
+    // Same snapshots the recorder writes, except that the ply 0 snapshot sits before the
+    // first SPAWN record instead of after it; seek() applies spawns either way
+    private void rebuildIndex() {
+        ByteBuffer out = ByteBuffer.allocate(H + 1024 * S);
+        CheckersBoard b = new CheckersBoard();
+        int game = -1, ply = 0;
+        out.position(H);
+        for (long off = H; off < end; off += R) {
+            int type = records.get((int) off);
+            if (type == CheckersRecorder.GAME) {
+                b.reset();
+                game++;
+                ply = 0;
+            } else if (game < 0) {
+                continue;
+            } else if (type == CheckersRecorder.SPAWN) {
+                b.setPowerUp(records.getInt((int) off + 4), records.get((int) off + 1));
+                continue;
+            } else if (type == CheckersRecorder.MOVE) {
+                b.apply(records.getInt((int) off + 4));
+                ply++;
+                if (ply % CheckersRecorder.INTERVAL != 0) continue;
+            } else {
+                continue;
+            }
+            if (out.remaining() < S) {
+                ByteBuffer bigger = ByteBuffer.allocate(out.capacity() * 2);
+                out.flip();
+                bigger.put(out);
+                out = bigger;
+            }
+            putSnapshot(out, off + R, game, ply, b);
+        }
+        snapshotCount = (out.position() - H) / S;
+        snapshots = out;
+    }
+
+    private static void putSnapshot(ByteBuffer out, long offset, int game, int ply, CheckersBoard b) {
+        out.putLong(offset).putInt(game).putInt(ply).putInt(b.red).putInt(b.black).putInt(b.kings)
+           .putInt((b.redToMove ? 1 : 0) | (b.powerUpSquare + 1) << 1 | b.powerUpType << 7);
+    }
+
+    // Games start at their ply 0 snapshots; length and result come from the records after
+    // each game's last snapshot
+    private void buildGameTable() {
+        games = 0;
+        for (int i = 0; i < snapshotCount; i++) {
+            if (snapshots.getInt(H + i * S + 12) == 0) games++;
+        }
+        firstSnapshot = new int[games + 1];
+        plies = new int[games];
+        results = new int[games];
+        for (int i = 0, g = 0; i < snapshotCount; i++) {
+            if (snapshots.getInt(H + i * S + 12) == 0) firstSnapshot[g++] = i;
+        }
+        firstSnapshot[games] = snapshotCount;
+        for (int g = 0; g < games; g++) {
+            int last = H + (firstSnapshot[g + 1] - 1) * S;
+            int n = snapshots.getInt(last + 12);
+            for (long off = snapshots.getLong(last); off < end; off += R) {
+                int type = records.get((int) off);
+                if (type == CheckersRecorder.GAME) break;
+                if (type == CheckersRecorder.MOVE) n++;
+                else if (type == CheckersRecorder.RESULT) results[g] = records.get((int) off + 1);
+            }
+            plies[g] = n;
+        }
+    }
+
+    public int getGameCount() {
+        return games;
+    }
+
+    public int getPlies(int game) {
+        return plies[game];
+    }
+
+    // CheckersMatch result code; ONGOING for a game that was abandoned
+    public int getResult(int game) {
+        return results[game];
+    }
+
+    // Loads the position after the given number of plies of a game into out and returns
+    // the move that led to it (0 at ply 0)
+    public int seek(int game, int ply, CheckersBoard out) {
+        ply = Math.max(0, Math.min(ply, plies[game]));
+        int k = Math.min(ply / CheckersRecorder.INTERVAL, firstSnapshot[game + 1] - firstSnapshot[game] - 1);
+        // Step back one snapshot so the move into the target ply is in the replayed range
+        if (k > 0 && ply == k * CheckersRecorder.INTERVAL) k--;
+        int s = H + (firstSnapshot[game] + k) * S;
+        out.reset();
+        out.red = snapshots.getInt(s + 16);
+        out.black = snapshots.getInt(s + 20);
+        out.kings = snapshots.getInt(s + 24);
+        int state = snapshots.getInt(s + 28);
+        out.redToMove = (state & 1) != 0;
+        out.powerUpSquare = ((state >> 1) & 63) - 1;
+        out.powerUpType = state >> 7;
+        out.hash = CheckersZobrist.hash(out);
+
+        int at = snapshots.getInt(s + 12);
+        int last = 0;
+        for (long off = snapshots.getLong(s); off < end; off += R) {
+            int type = records.get((int) off);
+            if (type == CheckersRecorder.GAME || (type == CheckersRecorder.MOVE && at == ply)) break;
+            if (type == CheckersRecorder.MOVE) {
+                last = records.getInt((int) off + 4);
+                out.apply(last);
+                at++;
+            } else if (type == CheckersRecorder.SPAWN) {
+                out.setPowerUp(records.getInt((int) off + 4), records.get((int) off + 1));
+            }
+        }
+        return last;
+    }
+
+    // One sequential pass over every record of the archive
+    private void scan() {
+        long start = System.nanoTime();
+        long moves = 0, captures = 0, crowns = 0, powerUps = 0;
+        int[] byResult = new int[4];
+        for (long off = H; off < end; off += R) {
+            int type = records.get((int) off);
+            if (type == CheckersRecorder.MOVE) {
+                int flags = records.get((int) off + 1);
+                moves++;
+                if ((flags & CheckersBoard.CAPTURED) != 0) captures++;
+                if ((flags & CheckersBoard.CROWNED) != 0) crowns++;
+                if ((flags & (CheckersBoard.POWER_KING | CheckersBoard.POWER_SKIP)) != 0) powerUps++;
+            } else if (type == CheckersRecorder.RESULT) {
+                byResult[records.get((int) off + 1) & 3]++;
+            }
+        }
+        long nanos = Math.max(1, System.nanoTime() - start);
+        long count = (end - H) / R;
+        System.out.println(String.format("%,d games  %,d moves  %,d captures  %,d crownings  %,d power-ups",
+                games, moves, captures, crowns, powerUps));
+        System.out.println(String.format("red %d  black %d  draw %d  unfinished %d",
+                byResult[CheckersMatch.RED_WINS], byResult[CheckersMatch.BLACK_WINS], byResult[CheckersMatch.DRAW],
+                games - byResult[1] - byResult[2] - byResult[3]));
+        System.out.println(String.format("%,d records in %.1f ms  (%,d records/sec)",
+                count, nanos / 1e6, count * 1000000000L / nanos));
+    }
+
+    // ================== VIEWER ==================
+    private static final class Viewer extends JPanel {
+
+        private static final int CELL_SIZE = 80;
+        private static final int WIDTH = 8 * CELL_SIZE;
+        private static final int HEIGHT = 8 * CELL_SIZE + 100;
+
+        private final CheckersReplay replay;
+        private final CheckersBoard position = new CheckersBoard();
+        private int game;
+        private int ply;
+        private int lastMove;
+
+        Viewer(CheckersReplay replay, int game) {
+            this.replay = replay;
+            this.game = Math.max(0, Math.min(game, replay.getGameCount() - 1));
+            setPreferredSize(new Dimension(WIDTH, HEIGHT));
+            setFocusable(true);
+            goTo(this.game, 0);
+
+            addKeyListener(new KeyAdapter() {
+                public void keyPressed(KeyEvent e) {
+                    int key = e.getKeyCode();
+                    int g = Viewer.this.game;
+                    if (key == KeyEvent.VK_RIGHT) goTo(g, ply + 1);
+                    else if (key == KeyEvent.VK_LEFT) goTo(g, ply - 1);
+                    else if (key == KeyEvent.VK_UP) goTo(g, ply + 10);
+                    else if (key == KeyEvent.VK_DOWN) goTo(g, ply - 10);
+                    else if (key == KeyEvent.VK_HOME) goTo(g, 0);
+                    else if (key == KeyEvent.VK_END) goTo(g, Viewer.this.replay.getPlies(g));
+                    else if (key == KeyEvent.VK_PAGE_DOWN && g + 1 < Viewer.this.replay.getGameCount()) goTo(g + 1, 0);
+                    else if (key == KeyEvent.VK_PAGE_UP && g > 0) goTo(g - 1, 0);
+                }
+            });
+        }
+
+        private void goTo(int g, int p) {
+            game = g;
+            ply = Math.max(0, Math.min(p, replay.getPlies(g)));
+            lastMove = replay.seek(game, ply, position);
+            repaint();
+        }
+
+        protected void paintComponent(Graphics g0) {
+            super.paintComponent(g0);
+            Graphics2D g = (Graphics2D) g0;
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+            for (int r = 0; r < 8; r++) {
+                for (int c = 0; c < 8; c++) {
+                    g.setColor((r + c) % 2 == 0 ? new Color(240,217,181) : new Color(181,136,99));
+                    g.fillRect(c * CELL_SIZE, r * CELL_SIZE, CELL_SIZE, CELL_SIZE);
+                }
+            }
+
+            // Last move
+            if (lastMove != 0) {
+                g.setColor(new Color(0,255,0,90));
+                for (int sq : new int[] {CheckersMoveGen.from(lastMove), CheckersMoveGen.to(lastMove)}) {
+                    g.fillRect(CheckersBoard.col(sq) * CELL_SIZE, CheckersBoard.row(sq) * CELL_SIZE, CELL_SIZE, CELL_SIZE);
+                }
+            }
+
+            int powerUp = position.getPowerUpSquare();
+            if (powerUp >= 0) {
+                g.setColor(Color.ORANGE);
+                g.setFont(new Font("Arial", Font.BOLD, 14));
+                g.drawString(position.getPowerUpType() == 1 ? "KING" : "SKIP",
+                        CheckersBoard.col(powerUp) * CELL_SIZE + 22, CheckersBoard.row(powerUp) * CELL_SIZE + 45);
+            }
+
+            for (int r = 0; r < 8; r++) {
+                for (int c = 0; c < 8; c++) {
+                    int p = position.pieceAt(r, c);
+                    if (p == 0) continue;
+                    int px = c * CELL_SIZE + 10;
+                    int py = r * CELL_SIZE + 10;
+                    g.setColor(p == 1 || p == 3 ? new Color(200,30,30) : Color.DARK_GRAY);
+                    g.fillOval(px, py, CELL_SIZE-20, CELL_SIZE-20);
+                    g.setColor(Color.WHITE);
+                    g.drawOval(px, py, CELL_SIZE-20, CELL_SIZE-20);
+                    if (p >= 3) {
+                        g.setColor(Color.YELLOW);
+                        g.setFont(new Font("Arial", Font.BOLD, 32));
+                        g.drawString("K", px+20, py+50);
+                    }
+                }
+            }
+
+            int result = replay.getResult(game);
+            g.setColor(new Color(0,0,0,220));
+            g.fillRect(0, HEIGHT-100, WIDTH, 100);
+            g.setColor(Color.WHITE);
+            g.setFont(new Font("Arial", Font.BOLD, 24));
+            g.drawString("Game " + (game + 1) + "/" + replay.getGameCount() + "   Ply " + ply + "/" + replay.getPlies(game)
+                    + (lastMove != 0 ? "   " + CheckersMoveGen.toPdn(lastMove) : ""), 20, HEIGHT-60);
+            g.drawString(result == CheckersMatch.RED_WINS ? "Red won" : result == CheckersMatch.BLACK_WINS ? "Black won"
+                    : result == CheckersMatch.DRAW ? "Draw" : "Unfinished", 20, HEIGHT-30);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: CheckersReplay [--scan] games.ckr [game]");
+            System.exit(1);
+        }
+        if (args[0].equals("--scan")) {
+            new CheckersReplay(new File(args[1])).scan();
+            return;
+        }
+        final CheckersReplay replay = new CheckersReplay(new File(args[0]));
+        if (replay.getGameCount() == 0) {
+            System.err.println("No games in " + args[0]);
+            System.exit(1);
+        }
+        final int game = args.length > 1 ? Integer.parseInt(args[1]) - 1 : 0;
+        SwingUtilities.invokeLater(new Runnable() {
+            public void run() {
+                JFrame frame = new JFrame("Checkers Replay");
+                frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+                Viewer viewer = new Viewer(replay, game);
+                frame.add(viewer);
+                frame.pack();
+                frame.setLocationRelativeTo(null);
+                frame.setResizable(false);
+                frame.setVisible(true);
+                viewer.requestFocusInWindow();
+            }
+        });
+    }
+}
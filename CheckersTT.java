@@ -0,0 +1,104 @@
+package games;
+
+// Fixed-size transposition table for CheckersEngine.
+// Entries are two longs (key ^ data, data) so a torn write from another thread fails the key
+// check instead of returning garbage; no locks are taken. Buckets hold two entries: a
+// depth-preferred slot and an always-replace slot.
+//
+// data layout: bits 0-31 move, 32-47 score, 48-55 depth, 56-57 bound, 58-63 search age
+public final class CheckersTT {
+
+    public static final int LOWER = 1;
+    public static final int UPPER = 2;
+    public static final int EXACT = 3;
+
+    private final long[] table;
+    private final int bucketMask;
+    private int age = 0;
+
+    public CheckersTT(int megabytes) {
+        long bytes = Math.max(1, megabytes) * 1024L * 1024L;
+        // 32 bytes per bucket, rounded down to a power of two
+        long buckets = Long.highestOneBit(Math.min(bytes / 32, 1L << 26));
+        table = new long[(int) buckets * 4];
+        bucketMask = (int) buckets - 1;
+    }
+
+    public int sizeMegabytes() {
+        return (int) (table.length * 8L / (1024 * 1024));
+    }
+
+    public void newSearch() {
+        age = (age + 1) & 63;
+    }
+
+    public void clear() {
+        java.util.Arrays.fill(table, 0L);
+        age = 0;
+    }
+
+    // Returns the packed data word, or 0 on a miss
+    public long probe(long hash) {
+        int i = ((int) hash & bucketMask) << 2;
+        long d = table[i + 1];
+        if ((table[i] ^ d) == hash && d != 0) return d;
+        d = table[i + 3];
+        if ((table[i + 2] ^ d) == hash && d != 0) return d;
+        return 0L;
+    }
+
+    public void store(long hash, int move, int score, int depth, int bound) {
+        int i = ((int) hash & bucketMask) << 2;
+        long old = table[i + 1];
+        boolean sameKey = (table[i] ^ old) == hash;
+        if (move == 0 && sameKey) move = move(old);
+        long d = (move & 0xFFFFFFFFL)
+                | ((long) (score & 0xFFFF) << 32)
+                | ((long) (depth & 0xFF) << 48)
+                | ((long) bound << 56)
+                | ((long) age << 58);
+        if (sameKey || old == 0 || depth >= depth(old) || age(old) != age) {
+            // Demote the previous deep entry to the always-replace slot
+            if (!sameKey && old != 0) {
+                table[i + 2] = table[i];
+                table[i + 3] = old;
+            }
+            table[i] = hash ^ d;
+            table[i + 1] = d;
+        } else {
+            table[i + 2] = hash ^ d;
+            table[i + 3] = d;
+        }
+    }
+
+    // Permille of the first 1000 depth-preferred slots written during the current search
+    public int hashfull() {
+        int used = 0;
+        int n = Math.min(1000, bucketMask + 1);
+        for (int b = 0; b < n; b++) {
+            long d = table[(b << 2) + 1];
+            if (d != 0 && age(d) == age) used++;
+        }
+        return used * 1000 / n;
+    }
+
+    public static int move(long data) {
+        return (int) data;
+    }
+
+    public static int score(long data) {
+        return (short) (data >>> 32);
+    }
+
+    public static int depth(long data) {
+        return (int) (data >>> 48) & 0xFF;
+    }
+
+    public static int bound(long data) {
+        return (int) (data >>> 56) & 3;
+    }
+
+    private static int age(long data) {
+        return (int) (data >>> 58);
+    }
+}
@@ -0,0 +1,145 @@
+package games;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Endgame tablebase probe. One file per material signature (red men, red kings, black men,
+// black kings), written by CheckersTablebaseGen and mapped read-only on first use, so opening
+// costs nothing and a probe is a rank computation plus one byte read.
+//
+// Entry byte, from the side to move's view: 0 draw, +d win in d plies, -d loss in d-1 plies
+// (so -1 is "no moves left"). The tables are built without power-ups, so a position with one
+// on the board is not covered.
+public final class CheckersTablebase {
+
+    public static final int MAGIC = 0x434B5442; // "CKTB"
+    public static final int VERSION = 2;
+    public static final int HEADER = 16;
+    public static final int UNKNOWN = Integer.MIN_VALUE;
+    // The largest 6-piece tables have 503,840,768 entries; 7 pieces would pass the
+    // 2 GB a byte[] or a single mapping can hold
+    public static final int MAX_PIECES = 6;
+
+    static final long[][] BINOMIAL = new long[33][MAX_PIECES + 1];
+
+    static {
+        for (int n = 0; n <= 32; n++) {
+            BINOMIAL[n][0] = 1;
+            for (int k = 1; k <= MAX_PIECES; k++) {
+                BINOMIAL[n][k] = n == 0 ? 0 : BINOMIAL[n - 1][k - 1] + BINOMIAL[n - 1][k];
+            }
+        }
+    }
+
+    private final File dir;
+    private final int maxPieces;
+    private final AtomicReferenceArray<MappedByteBuffer> maps = new AtomicReferenceArray<MappedByteBuffer>(6561);
+    private final boolean[] missing = new boolean[6561];
+
+    public CheckersTablebase(File dir, int maxPieces) {
+        this.dir = dir;
+        this.maxPieces = Math.min(maxPieces, MAX_PIECES);
+    }
+
+    public int maxPieces() {
+        return maxPieces;
+    }
+
+    public boolean covers(CheckersBoard b) {
+        int n = Integer.bitCount(b.red | b.black);
+        return n <= maxPieces && b.red != 0 && b.black != 0 && b.powerUpSquare < 0;
+    }
+
+    // Entry for the side to move, or UNKNOWN when the position is not covered
+    public int probe(CheckersBoard b) {
+        if (!covers(b)) return UNKNOWN;
+        int rm = b.red & ~b.kings, rk = b.red & b.kings;
+        int bm = b.black & ~b.kings, bk = b.black & b.kings;
+        int code = signature(Integer.bitCount(rm), Integer.bitCount(rk), Integer.bitCount(bm), Integer.bitCount(bk));
+        MappedByteBuffer map = maps.get(code);
+        if (map == null) {
+            if (missing[code]) return UNKNOWN;
+            map = map(code);
+            if (map == null) return UNKNOWN;
+        }
+        long index = index(rm, rk, bm, bk, b.redToMove);
+        return map.get(HEADER + (int) index);
+    }
+
+    public static boolean isWin(int v) {
+        return v != UNKNOWN && v > 0;
+    }
+
+    public static boolean isLoss(int v) {
+        return v != UNKNOWN && v < 0;
+    }
+
+    // Search score for an entry found at the given ply
+    public static int score(int v, int ply) {
+        if (v > 0) return CheckersEngine.WIN - ply - v;
+        if (v < 0) return -CheckersEngine.WIN + ply - v - 1;
+        return 0;
+    }
+
+    static int signature(int rm, int rk, int bm, int bk) {
+        return rm + 9 * rk + 81 * bm + 729 * bk;
+    }
+
+    static String fileName(int rm, int rk, int bm, int bk) {
+        return "ctb_" + rm + rk + bm + bk + ".bin";
+    }
+
+    static long size(int rm, int rk, int bm, int bk) {
+        return BINOMIAL[32][rm] * BINOMIAL[32][rk] * BINOMIAL[32][bm] * BINOMIAL[32][bk] * 2;
+    }
+
+    // Colex rank of a square set among all sets of the same size
+    static long rank(int mask) {
+        long r = 0;
+        int i = 1;
+        for (int m = mask; m != 0; m &= m - 1) {
+            r += BINOMIAL[Integer.numberOfTrailingZeros(m)][i++];
+        }
+        return r;
+    }
+
+    static long index(int rm, int rk, int bm, int bk, boolean redToMove) {
+        long i = rank(rm);
+        i = i * BINOMIAL[32][Integer.bitCount(rk)] + rank(rk);
+        i = i * BINOMIAL[32][Integer.bitCount(bm)] + rank(bm);
+        i = i * BINOMIAL[32][Integer.bitCount(bk)] + rank(bk);
+        return i * 2 + (redToMove ? 0 : 1);
+    }
+
+    private synchronized MappedByteBuffer map(int code) {
+        MappedByteBuffer map = maps.get(code);
+        if (map != null || missing[code]) return map;
+        int rm = code % 9, rk = code / 9 % 9, bm = code / 81 % 9, bk = code / 729;
+        File f = new File(dir, fileName(rm, rk, bm, bk));
+        try {
+            RandomAccessFile raf = new RandomAccessFile(f, "r");
+            try {
+                FileChannel ch = raf.getChannel();
+                map = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            } finally {
+                raf.close();
+            }
+            map.order(ByteOrder.BIG_ENDIAN);
+            if (map.getInt(0) != MAGIC || map.getInt(4) != VERSION
+                    || map.capacity() != HEADER + size(rm, rk, bm, bk)) {
+                System.err.println("Ignoring stale or damaged tablebase file " + f);
+                map = null;
+            }
+        } catch (IOException ex) {
+            map = null;
+        }
+        if (map == null) missing[code] = true;
+        else maps.set(code, map);
+        return map;
+    }
+}
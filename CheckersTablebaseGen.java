@@ -0,0 +1,215 @@
+package games;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+
+// Offline generator for CheckersTablebase files.
+// Signatures are solved smallest first (captures only lead to fewer pieces, crowning only to
+// fewer men), so every position outside the one being solved is already final. Within a
+// signature, pass p resolves positions whose result needs exactly p plies: a win once some
+// child is a loss decided in an earlier pass, a loss once every child is such a win.
+// Whatever is still open when the passes stop changing anything is a draw.
+//
+//   java games.CheckersTablebaseGen [maxPieces] [dir]
+public final class CheckersTablebaseGen {
+
+    private static final byte OPEN = 0, WIN = 1, LOSS = 2, INVALID = 3;
+
+    private final int maxPieces;
+    private final File dir;
+    private final HashMap<Integer, byte[]> solved = new HashMap<Integer, byte[]>();
+    private final int[][] combos;
+    private final CheckersBoard board = new CheckersBoard();
+    private final int[] moves = new int[CheckersMoveGen.MAX_MOVES];
+
+    // Signature being solved
+    private int sig;
+    private byte[] state;
+    private short[] dist;
+    private int horizon;
+
+    public CheckersTablebaseGen(int maxPieces, File dir) {
+        this.maxPieces = maxPieces;
+        this.dir = dir;
+        combos = new int[maxPieces + 1][];
+        for (int k = 0; k <= maxPieces; k++) {
+            combos[k] = new int[(int) CheckersTablebase.BINOMIAL[32][k]];
+            // Ascending k-bit masks (Gosper's hack) are exactly colex rank order
+            int m = k == 0 ? 0 : (1 << k) - 1;
+            for (int i = 0; i < combos[k].length; i++) {
+                combos[k][i] = m;
+                if (m == 0) break;
+                int c = m & -m, r = m + c;
+                m = (((r ^ m) >>> 2) / c) | r;
+            }
+        }
+    }
+
+    public void generateAll() throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+        for (int total = 2; total <= maxPieces; total++) {
+            for (int men = 0; men <= total; men++) {
+                for (int rm = 0; rm <= men; rm++) {
+                    int bm = men - rm;
+                    for (int rk = 0; rk <= total - men; rk++) {
+                        int bk = total - men - rk;
+                        if (rm + rk == 0 || bm + bk == 0) continue;
+                        generate(rm, rk, bm, bk);
+                    }
+                }
+            }
+        }
+    }
+
+    private void generate(int rm, int rk, int bm, int bk) throws IOException {
+        long start = System.currentTimeMillis();
+        sig = CheckersTablebase.signature(rm, rk, bm, bk);
+        int size = (int) CheckersTablebase.size(rm, rk, bm, bk);
+        state = new byte[size];
+        dist = new short[size];
+        horizon = 0;
+
+        int[] cRm = combos[rm], cRk = combos[rk], cBm = combos[bm], cBk = combos[bk];
+        for (int pass = 0; ; pass++) {
+            int changed = 0;
+            int idx = 0;
+            for (int a = 0; a < cRm.length; a++) {
+                for (int b = 0; b < cRk.length; b++) {
+                    for (int c = 0; c < cBm.length; c++) {
+                        for (int d = 0; d < cBk.length; d++) {
+                            for (int side = 0; side < 2; side++, idx++) {
+                                if (state[idx] != OPEN) continue;
+                                if (pass == 0 && !valid(cRm[a], cRk[b], cBm[c], cBk[d])) {
+                                    state[idx] = INVALID;
+                                    continue;
+                                }
+                                setBoard(cRm[a], cRk[b], cBm[c], cBk[d], side == 0);
+                                if (solve(idx, pass)) changed++;
+                            }
+                        }
+                    }
+                }
+            }
+            if (changed == 0 && pass > horizon) break;
+        }
+
+        byte[] out = new byte[size];
+        int wins = 0, losses = 0, longest = 0;
+        for (int i = 0; i < size; i++) {
+            if (state[i] == WIN) {
+                out[i] = (byte) Math.min(dist[i], 127);
+                wins++;
+            } else if (state[i] == LOSS) {
+                out[i] = (byte) -Math.min(dist[i] + 1, 128);
+                losses++;
+            }
+            if (state[i] == WIN || state[i] == LOSS) longest = Math.max(longest, dist[i]);
+        }
+        solved.put(sig, out);
+        write(rm, rk, bm, bk, out);
+        state = null;
+        dist = null;
+        System.out.println(String.format("%s  %,d entries  %,d wins  %,d losses  longest %d plies  %d ms",
+                CheckersTablebase.fileName(rm, rk, bm, bk), size, wins, losses, longest,
+                System.currentTimeMillis() - start));
+    }
+
+    private static boolean valid(int rm, int rk, int bm, int bk) {
+        int all = rm | rk | bm | bk;
+        return Integer.bitCount(all) == Integer.bitCount(rm) + Integer.bitCount(rk)
+                + Integer.bitCount(bm) + Integer.bitCount(bk)
+                && (rm & CheckersBoard.RED_CROWN) == 0
+                && (bm & CheckersBoard.BLACK_CROWN) == 0;
+    }
+
+    private void setBoard(int rm, int rk, int bm, int bk, boolean redToMove) {
+        board.red = rm | rk;
+        board.black = bm | bk;
+        board.kings = rk | bk;
+        board.redToMove = redToMove;
+        board.powerUpSquare = -1;
+        board.powerUpType = 0;
+    }
+
+    // Tries to decide one open position in this pass
+    private boolean solve(int idx, int pass) {
+        int n = CheckersMoveGen.generate(board, moves, 0);
+        if (n == 0) {
+            state[idx] = LOSS;
+            dist[idx] = 0;
+            return true;
+        }
+        if (pass == 0) return false;
+
+        boolean allWins = true;
+        for (int i = 0; i < n; i++) {
+            board.make(moves[i]);
+            int v = child();
+            board.unmake();
+            int type = v & 3, d = v >> 2;
+            if (type == LOSS && d < pass) {
+                state[idx] = WIN;
+                dist[idx] = (short) pass;
+                return true;
+            }
+            if (type != WIN || d >= pass) allWins = false;
+        }
+        if (allWins) {
+            state[idx] = LOSS;
+            dist[idx] = (short) pass;
+            return true;
+        }
+        return false;
+    }
+
+    // Result of the current (child) position for its side to move, packed as dist << 2 | type
+    private int child() {
+        int own = board.redToMove ? board.red : board.black;
+        if (own == 0) return LOSS;
+        int rm = board.red & ~board.kings, rk = board.red & board.kings;
+        int bm = board.black & ~board.kings, bk = board.black & board.kings;
+        int code = CheckersTablebase.signature(Integer.bitCount(rm), Integer.bitCount(rk),
+                Integer.bitCount(bm), Integer.bitCount(bk));
+        int idx = (int) CheckersTablebase.index(rm, rk, bm, bk, board.redToMove);
+        if (code == sig) return (dist[idx] << 2) | state[idx];
+
+        int v = solved.get(code)[idx];
+        int d = v > 0 ? v : v < 0 ? -v - 1 : 0;
+        if (v != 0) horizon = Math.max(horizon, d + 1);
+        return v > 0 ? (d << 2) | WIN : v < 0 ? (d << 2) | LOSS : OPEN;
+    }
+
+    private void write(int rm, int rk, int bm, int bk, byte[] data) throws IOException {
+        File f = new File(dir, CheckersTablebase.fileName(rm, rk, bm, bk));
+        RandomAccessFile raf = new RandomAccessFile(f, "rw");
+        try {
+            raf.setLength(0);
+            FileChannel ch = raf.getChannel();
+            ByteBuffer header = ByteBuffer.allocate(CheckersTablebase.HEADER);
+            header.putInt(CheckersTablebase.MAGIC).putInt(CheckersTablebase.VERSION)
+                  .put((byte) rm).put((byte) rk).put((byte) bm).put((byte) bk).putInt(0);
+            header.flip();
+            while (header.hasRemaining()) ch.write(header);
+            ByteBuffer body = ByteBuffer.wrap(data);
+            while (body.hasRemaining()) ch.write(body);
+        } finally {
+            raf.close();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int maxPieces = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        File dir = new File(args.length > 1 ? args[1] : "tablebase");
+        if (maxPieces < 2 || maxPieces > CheckersTablebase.MAX_PIECES) {
+            System.err.println("maxPieces must be between 2 and " + CheckersTablebase.MAX_PIECES);
+            System.exit(1);
+        }
+        long start = System.currentTimeMillis();
+        new CheckersTablebaseGen(maxPieces, dir).generateAll();
+        System.out.println("Done in " + (System.currentTimeMillis() - start) / 1000 + " s");
+    }
+}
@@ -0,0 +1,204 @@
+package games;
+
+import java.io.*;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Headless engine-vs-engine tournament. Each worker thread plays one CheckersMatch at a time
+// with its own pair of engines; finished games are appended to games.pdn as they complete,
+// each worker also streams its games to tournament-<n>.ckr for CheckersReplay (--record false
+// turns that off), and a running score with an Elo estimate goes to summary.txt.
+//
+//   java games.CheckersTournament --games 2000 --threads 16 --depth 6
+//        --weightsA 100,150,3,8 --weightsB 100,170,4,6 --out tune-run-1
+//
+// Games 2k and 2k + 1 share seed (seed + k) for power-up spawns, their random opening plies and
+// each colour's book picks, and engine A plays red in even games, so every pair replays the
+// same opening with colours swapped.
+public final class CheckersTournament {
+
+    private static final int MAX_PLIES = 400;
+    private static final int SUMMARY_EVERY = 100;
+
+    private int games = 1000;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int depth = 6;
+    private long millis = 0;
+    private int hashMb = 8;
+    private int randomPlies = 4;
+    private int drawPlies = 100;
+    private long seed = 1;
+    private int[] weightsA = CheckersEngine.DEFAULT_WEIGHTS.clone();
+    private int[] weightsB = CheckersEngine.DEFAULT_WEIGHTS.clone();
+    private File out = new File("tournament");
+    private CheckersBook book;
+    private boolean record = true;
+
+    private final AtomicInteger nextGame = new AtomicInteger();
+    private Writer pdn;
+    private Writer summary;
+    private int finished, winsA, winsB, draws;
+    private long startMillis;
+
+    public void run() throws IOException, InterruptedException {
+        if (!out.isDirectory() && !out.mkdirs()) throw new IOException("Cannot create " + out);
+        pdn = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(new File(out, "games.pdn"), true), "UTF-8"));
+        summary = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(new File(out, "summary.txt"), true), "UTF-8"));
+        startMillis = System.currentTimeMillis();
+        report("start: " + games + " games, " + threads + " threads, depth " + depth
+                + (millis > 0 ? ", " + millis + " ms/move" : "") + ", A=" + join(weightsA) + " B=" + join(weightsB));
+
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(new Runnable() {
+                public void run() {
+                    work();
+                }
+            }, "tournament-" + i);
+            workers[i].start();
+        }
+        for (Thread t : workers) t.join();
+
+        report(scoreLine());
+        pdn.close();
+        summary.close();
+    }
+
+    private void work() {
+        CheckersRecorder recorder = null;
+        if (record) {
+            try {
+                recorder = new CheckersRecorder(new File(out, Thread.currentThread().getName() + ".ckr"));
+            } catch (IOException ex) {
+                System.err.println("Not recording games: " + ex.getMessage());
+            }
+        }
+        CheckersEngine a = new CheckersEngine(new CheckersTT(hashMb));
+        CheckersEngine b = new CheckersEngine(new CheckersTT(hashMb));
+        a.setWeights(weightsA);
+        b.setWeights(weightsB);
+        a.setBook(book);
+        b.setBook(book);
+        CheckersMatch match = new CheckersMatch(0, drawPlies);
+        match.setRecorder(recorder);
+        long budget = millis > 0 ? millis : 24L * 3600 * 1000;
+
+        for (int g = nextGame.getAndIncrement(); g < games; g = nextGame.getAndIncrement()) {
+            long gameSeed = seed + g / 2;
+            Random opening = new Random(gameSeed * 0x9E3779B97F4A7C15L);
+            boolean aIsRed = (g & 1) == 0;
+            // Book picks follow the colour, so both games of a pair leave the book alike
+            (aIsRed ? a : b).setBookSeed(gameSeed * 2);
+            (aIsRed ? b : a).setBookSeed(gameSeed * 2 + 1);
+            // Nothing carries over from the worker's last game, so results do not depend on scheduling
+            a.newGame();
+            b.newGame();
+            match.reseed(gameSeed);
+            match.reset();
+            CheckersBoard pos = match.getPosition();
+
+            StringBuilder text = new StringBuilder();
+            appendPowerUp(text, pos);
+            while (!match.isOver() && match.getPlies() < MAX_PLIES) {
+                int move;
+                if (match.getPlies() < randomPlies) {
+                    move = match.getMove(opening.nextInt(match.getMoveCount()));
+                } else {
+                    CheckersEngine e = pos.isRedToMove() == aIsRed ? a : b;
+                    move = e.search(pos, budget, depth);
+                }
+                if (pos.isRedToMove()) text.append(match.getPlies() / 2 + 1).append(". ");
+                text.append(CheckersMoveGen.toPdn(move)).append(' ');
+                int flags = match.play(move);
+                if ((flags & (CheckersBoard.POWER_KING | CheckersBoard.POWER_SKIP)) != 0) appendPowerUp(text, pos);
+            }
+
+            int result = match.isOver() ? match.getResult() : CheckersMatch.DRAW;
+            finish(g, gameSeed, aIsRed, result, text);
+        }
+        if (recorder != null) recorder.close();
+    }
+
+    private static void appendPowerUp(StringBuilder text, CheckersBoard pos) {
+        if (pos.getPowerUpSquare() < 0) return;
+        text.append("{power ").append(pos.getPowerUpType() == 1 ? 'K' : 'S')
+            .append(pos.getPowerUpSquare() + 1).append("} ");
+    }
+
+    private synchronized void finish(int g, long gameSeed, boolean aIsRed, int result, StringBuilder moves) {
+        String res = result == CheckersMatch.RED_WINS ? "1-0" : result == CheckersMatch.BLACK_WINS ? "0-1" : "1/2-1/2";
+        if (result == CheckersMatch.DRAW) draws++;
+        else if ((result == CheckersMatch.RED_WINS) == aIsRed) winsA++;
+        else winsB++;
+        finished++;
+
+        try {
+            pdn.write("[Event \"CheckersTournament\"]\n");
+            pdn.write("[Round \"" + (g + 1) + "\"]\n");
+            pdn.write("[White \"" + (aIsRed ? "A" : "B") + "\"]\n");
+            pdn.write("[Black \"" + (aIsRed ? "B" : "A") + "\"]\n");
+            pdn.write("[Seed \"" + gameSeed + "\"]\n");
+            pdn.write("[Result \"" + res + "\"]\n");
+            pdn.write(moves.toString() + res + "\n\n");
+            pdn.flush();
+            if (finished % SUMMARY_EVERY == 0) report(scoreLine());
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    // A's score with the Elo difference and a 95% interval from the per-game variance
+    private String scoreLine() {
+        int n = Math.max(1, finished);
+        double s = (winsA + 0.5 * draws) / n;
+        double var = (winsA * (1 - s) * (1 - s) + draws * (0.5 - s) * (0.5 - s) + winsB * s * s) / n;
+        double se = Math.sqrt(var / n);
+        double elo = elo(s);
+        double err = (elo(s + 1.96 * se) - elo(s - 1.96 * se)) / 2;
+        long secs = Math.max(1, (System.currentTimeMillis() - startMillis) / 1000);
+        return String.format("%d games  A +%d -%d =%d  score %.1f%%  Elo %+.1f +/- %.1f  (%.1f games/s)",
+                finished, winsA, winsB, draws, 100 * s, elo, err, finished / (double) secs);
+    }
+
+    private static double elo(double s) {
+        s = Math.min(0.999, Math.max(0.001, s));
+        return -400 * Math.log10(1 / s - 1);
+    }
+
+    private void report(String line) throws IOException {
+        System.out.println(line);
+        summary.write(line + "\n");
+        summary.flush();
+    }
+
+    private static String join(int[] w) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < w.length; i++) sb.append(i > 0 ? "," : "").append(w[i]);
+        return sb.toString();
+    }
+
+    public static void main(String[] args) throws Exception {
+        CheckersTournament t = new CheckersTournament();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String key = args[i], value = args[i + 1];
+            if (key.equals("--games")) t.games = Integer.parseInt(value);
+            else if (key.equals("--threads")) t.threads = Integer.parseInt(value);
+            else if (key.equals("--depth")) t.depth = Integer.parseInt(value);
+            else if (key.equals("--ms")) t.millis = Long.parseLong(value);
+            else if (key.equals("--hashMb")) t.hashMb = Integer.parseInt(value);
+            else if (key.equals("--randomPlies")) t.randomPlies = Integer.parseInt(value);
+            else if (key.equals("--drawPlies")) t.drawPlies = Integer.parseInt(value);
+            else if (key.equals("--seed")) t.seed = Long.parseLong(value);
+            else if (key.equals("--weightsA")) t.weightsA = CheckersEngine.parseWeights(value);
+            else if (key.equals("--weightsB")) t.weightsB = CheckersEngine.parseWeights(value);
+            else if (key.equals("--out")) t.out = new File(value);
+            else if (key.equals("--book")) t.book = new CheckersBook(new File(value));
+            else if (key.equals("--record")) t.record = Boolean.parseBoolean(value);
+            else {
+                System.err.println("Unknown option " + key);
+                System.exit(1);
+            }
+        }
+        t.run();
+    }
+}
@@ -0,0 +1,46 @@
+package games;
+
+import java.util.Random;
+
+// Zobrist keys for CheckersBoard. Fixed seed so hashes are stable across runs
+// (opening books and saved tables depend on that).
+public final class CheckersZobrist {
+
+    // Piece index: 0 red man, 1 black man, 2 red king, 3 black king
+    static final long[][] PIECE = new long[4][CheckersBoard.SQUARES];
+    // Power-up index: type 1 (king) or 2 (skip); slot 0 unused
+    static final long[][] POWER_UP = new long[3][CheckersBoard.SQUARES];
+    static final long SIDE;
+
+    static {
+        Random r = new Random(0x5EEDC4EC4E25L);
+        for (int p = 0; p < 4; p++) {
+            for (int s = 0; s < CheckersBoard.SQUARES; s++) PIECE[p][s] = r.nextLong();
+        }
+        for (int t = 1; t < 3; t++) {
+            for (int s = 0; s < CheckersBoard.SQUARES; s++) POWER_UP[t][s] = r.nextLong();
+        }
+        SIDE = r.nextLong();
+    }
+
+    private CheckersZobrist() {}
+
+    static long powerUp(int sq, int type) {
+        return sq < 0 ? 0L : POWER_UP[type][sq];
+    }
+
+    // Full recomputation; the board keeps its hash up to date incrementally
+    static long hash(CheckersBoard b) {
+        long h = 0;
+        for (int m = b.red; m != 0; m &= m - 1) {
+            int s = Integer.numberOfTrailingZeros(m);
+            h ^= PIECE[(b.kings & (1 << s)) != 0 ? 2 : 0][s];
+        }
+        for (int m = b.black; m != 0; m &= m - 1) {
+            int s = Integer.numberOfTrailingZeros(m);
+            h ^= PIECE[(b.kings & (1 << s)) != 0 ? 3 : 1][s];
+        }
+        if (!b.redToMove) h ^= SIDE;
+        return h ^ powerUp(b.powerUpSquare, b.powerUpType);
+    }
+}
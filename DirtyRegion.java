@@ -0,0 +1,70 @@
+package games;
+
+import java.awt.Rectangle;
+import javax.swing.JComponent;
+
+// Screen areas that changed since the last paint. They are kept as a few separate rectangles
+// rather than one union, so changes far apart (two paddles, a snake's head and tail) repaint
+// only themselves; RepaintManager would merge them into one region covering everything
+// between. Overlapping rectangles are merged, and once MAX_RECTS are in use a new one joins
+// the rectangle it grows least. Use from the EDT only.
+public final class DirtyRegion {
+
+    private static final int MAX_RECTS = 8;
+
+    private final Rectangle[] rects = new Rectangle[MAX_RECTS];
+    private int count;
+    private boolean all;
+
+    public DirtyRegion() {
+        for (int i = 0; i < MAX_RECTS; i++) rects[i] = new Rectangle();
+    }
+
+    public void add(int x, int y, int width, int height) {
+        if (all || width <= 0 || height <= 0) return;
+        int best = -1;
+        long bestGrowth = Long.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            Rectangle r = rects[i];
+            if (r.intersects(x, y, width, height) || count == MAX_RECTS) {
+                long growth = unionArea(r, x, y, width, height) - (long) r.width * r.height;
+                if (growth < bestGrowth) {
+                    best = i;
+                    bestGrowth = growth;
+                }
+            }
+        }
+        if (best < 0) {
+            rects[count++].setBounds(x, y, width, height);
+        } else {
+            rects[best].add(x, y);
+            rects[best].add(x + width, y + height);
+        }
+    }
+
+    // The whole component changed
+    public void addAll() {
+        all = true;
+    }
+
+    public boolean isEmpty() {
+        return !all && count == 0;
+    }
+
+    // Paints the collected areas now and starts over
+    public void paint(JComponent c) {
+        if (all) {
+            c.paintImmediately(0, 0, c.getWidth(), c.getHeight());
+        } else {
+            for (int i = 0; i < count; i++) c.paintImmediately(rects[i]);
+        }
+        count = 0;
+        all = false;
+    }
+
+    private static long unionArea(Rectangle r, int x, int y, int width, int height) {
+        long w = Math.max(r.x + r.width, x + width) - Math.min(r.x, x);
+        long h = Math.max(r.y + r.height, y + height) - Math.min(r.y, y);
+        return w * h;
+    }
+}
@@ -0,0 +1,116 @@
+package games;
+
+import java.awt.GraphicsDevice;
+import java.awt.GraphicsEnvironment;
+import java.awt.Toolkit;
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.locks.LockSupport;
+import javax.swing.SwingUtilities;
+
+// Fixed-timestep loop driven by System.nanoTime, as an alternative to a javax.swing.Timer.
+// Game logic advances in whole ticks at the tick rate; frames are paced to the display
+// refresh rate (or -Dgames.fps) and get the fraction of the next tick already elapsed so the
+// game can interpolate. After a stall the loop catches up by running several ticks in one
+// frame, but never more than MAX_LAG_NANOS worth; anything beyond that is dropped.
+// Ticks and painting both run on the EDT, so game state needs no extra locking.
+//
+// Games opt in with -Dgames.loop=fixed; see enabled().
+public final class GameLoop implements Runnable {
+
+    public interface Game {
+        // One simulation step
+        void tick();
+
+        // Paint now; alpha in [0, 1] is how far time has moved toward the next tick
+        void render(double alpha);
+    }
+
+    private static final long MAX_LAG_NANOS = 250000000L;
+
+    private final Game game;
+    private final long frameNanos;
+    private volatile long tickNanos;
+    private volatile boolean running;
+    private Thread thread;
+
+    // Tick/render pair handed to the EDT each frame
+    private int pendingTicks;
+    private double pendingAlpha;
+    private final Runnable frame = new Runnable() {
+        public void run() {
+            for (int i = 0; i < pendingTicks; i++) game.tick();
+            game.render(pendingAlpha);
+            Toolkit.getDefaultToolkit().sync();
+        }
+    };
+
+    public GameLoop(Game game, double ticksPerSecond) {
+        this.game = game;
+        setTickRate(ticksPerSecond);
+        int fps = Integer.getInteger("games.fps", 0);
+        if (fps <= 0) fps = displayRefreshRate();
+        frameNanos = 1000000000L / fps;
+    }
+
+    public static boolean enabled() {
+        return "fixed".equals(System.getProperty("games.loop"));
+    }
+
+    private static int displayRefreshRate() {
+        try {
+            GraphicsDevice device = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice();
+            int hz = device.getDisplayMode().getRefreshRate();
+            if (hz > 0) return hz;
+        } catch (RuntimeException ex) {
+            // Headless or no display mode information
+        }
+        return 60;
+    }
+
+    // Safe to call from a tick; takes effect from the next frame
+    public void setTickRate(double ticksPerSecond) {
+        tickNanos = Math.max(1, (long) (1e9 / ticksPerSecond));
+    }
+
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        thread = new Thread(this, "game-loop");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public synchronized void stop() {
+        running = false;
+        if (thread != null) thread.interrupt();
+        thread = null;
+    }
+
+    public void run() {
+        long last = System.nanoTime();
+        long lag = 0;
+        long nextFrame = last;
+        while (running) {
+            long now = System.nanoTime();
+            lag = Math.min(lag + (now - last), MAX_LAG_NANOS);
+            last = now;
+
+            long tick = tickNanos;
+            pendingTicks = (int) (lag / tick);
+            lag -= pendingTicks * tick;
+            pendingAlpha = lag / (double) tick;
+            try {
+                SwingUtilities.invokeAndWait(frame);
+            } catch (InterruptedException ex) {
+                return;
+            } catch (InvocationTargetException ex) {
+                ex.getCause().printStackTrace();
+            }
+
+            nextFrame += frameNanos;
+            long wait = nextFrame - System.nanoTime();
+            if (wait > 0) LockSupport.parkNanos(wait);
+            else nextFrame = System.nanoTime();
+        }
+    }
+}
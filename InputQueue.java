@@ -0,0 +1,117 @@
+package games;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Single-producer single-consumer ring of input events. Listeners on the EDT only offer() what
+// happened, stamped with System.nanoTime(); the game polls the queue at the start of its tick
+// and applies the events there, so every input takes effect on the first tick after it
+// arrives and in arrival order. Slots are filled before the producer publishes the new tail
+// (lazySet) and read before the consumer publishes the new head, so neither side locks or
+// allocates. A full queue drops the event and counts it.
+//
+// An event is a type (KEY_*, MOUSE_*) or'ed with a key code, plus a position for mouse
+// events. poll() times each one from its stamp to the tick that took it; with
+// -Dgames.inputStats those latencies are printed when the program exits.
+public final class InputQueue {
+
+    public static final int KEY_PRESSED = 1 << 16;
+    public static final int KEY_RELEASED = 2 << 16;
+    public static final int MOUSE_PRESSED = 3 << 16;
+    public static final int MOUSE_RELEASED = 4 << 16;
+    public static final int MOUSE_DRAGGED = 5 << 16;
+    private static final int TYPE_MASK = 0xFFFF << 16;
+
+    private static final int CAPACITY = 256;
+
+    private final int[] events = new int[CAPACITY];
+    private final int[] positions = new int[CAPACITY];
+    private final long[] stamps = new long[CAPACITY];
+    // Next slot to read, advanced by the consumer, and next to write, by the producer
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long dropped;
+
+    // Consumer side: the event poll() took last, and latency totals
+    private int event;
+    private int position;
+    private long stamp;
+    private long taken;
+    private long totalLatency;
+    private long maxLatency;
+
+    public InputQueue(final String name) {
+        if (!Boolean.getBoolean("games.inputStats")) return;
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            public void run() {
+                System.out.println(name + " input: " + statsLine());
+            }
+        });
+    }
+
+    // Producer: records a key event, e.g. KEY_PRESSED | KeyEvent.VK_UP
+    public boolean offer(int event) {
+        return offer(event, 0, 0);
+    }
+
+    // Producer: records an event at pixel (x, y)
+    public boolean offer(int event, int x, int y) {
+        long t = tail.get();
+        if (t - head.get() == CAPACITY) {
+            dropped++;
+            return false;
+        }
+        int i = (int) t & (CAPACITY - 1);
+        events[i] = event;
+        positions[i] = x << 16 | y & 0xFFFF;
+        stamps[i] = System.nanoTime();
+        tail.lazySet(t + 1);
+        return true;
+    }
+
+    // Consumer: takes the oldest event, if any, for the tick that started at now (nanoTime)
+    public boolean poll(long now) {
+        long h = head.get();
+        if (h == tail.get()) return false;
+        int i = (int) h & (CAPACITY - 1);
+        event = events[i];
+        position = positions[i];
+        stamp = stamps[i];
+        head.lazySet(h + 1);
+
+        long latency = now - stamp;
+        taken++;
+        totalLatency += latency;
+        maxLatency = Math.max(maxLatency, latency);
+        return true;
+    }
+
+    // Of the event poll() took last
+    public int type() {
+        return event & TYPE_MASK;
+    }
+
+    public int keyCode() {
+        return event & ~TYPE_MASK;
+    }
+
+    public int x() {
+        return position >> 16;
+    }
+
+    public int y() {
+        return (short) position;
+    }
+
+    public long stamp() {
+        return stamp;
+    }
+
+    public long getDropped() {
+        return dropped;
+    }
+
+    public String statsLine() {
+        return String.format("%,d events, latency mean %.2f ms, max %.2f ms, %d dropped",
+                taken, taken == 0 ? 0 : totalLatency / 1e6 / taken, maxLatency / 1e6, dropped);
+    }
+}
@@ -0,0 +1,129 @@
+package games;
+
+// Computer player for either Pong paddle. Each tick it works out in closed form where the
+// ball will cross its paddle face: time to the face from the horizontal distance, then the
+// straight-line height folded back into the field, which accounts for any number of wall
+// bounces at once. Nothing is stepped and nothing allocated, so think() costs a few
+// multiplications.
+//
+// Skill 0 to 3 (Easy to Insane) sets how it plays: it moves no faster than PongGame's
+// PADDLE_SPEEDS taken from the slow end, waits REACTION_TICKS after the ball turns toward it
+// before using the new prediction, and aims off by up to AIM_ERROR pixels. While the ball
+// moves away it drifts back to the middle.
+//
+//   java games.PongAI [matches] [left skill] [right skill] [difficulty]    CPU vs CPU soak
+public final class PongAI {
+
+    private static final int[] REACTION_TICKS = {18, 10, 5, 0};
+    private static final int[] AIM_ERROR = {100, 80, 64, 0};
+
+    private static final int PERIOD = 2 * ((PongPhysics.HEIGHT - PongPhysics.BALL_SIZE) << PongPhysics.FP);
+    private static final int TOP = PongPhysics.BALL_SIZE / 2 << PongPhysics.FP;
+
+    private final int player;
+    private final int skill;
+    private final int paddleSpeed;
+    private final int maxSpeed;
+    private int budget;
+    private boolean approaching;
+    private int waited;
+    private int error;
+    private int target = PongPhysics.HEIGHT / 2;
+    private long rng;
+
+    // Plays player 0 (left) or 1 (right) in a PongSim whose paddles move paddleSpeed per tick
+    public PongAI(int player, int skill, int paddleSpeed, long seed) {
+        this.player = player;
+        this.skill = Math.max(0, Math.min(REACTION_TICKS.length - 1, skill));
+        this.paddleSpeed = paddleSpeed;
+        maxSpeed = PongGame.PADDLE_SPEEDS[PongGame.PADDLE_SPEEDS.length - 1 - this.skill];
+        rng = seed;
+    }
+
+    // UP/DOWN bits for this player's next step of sim
+    public int think(PongSim sim) {
+        return think(sim.getBall(), player == 0 ? sim.getPaddle1Y() : sim.getPaddle2Y());
+    }
+
+    // The same for a ball and this player's paddle top held outside a PongSim
+    public int think(PongPhysics ball, int paddleY) {
+        int y = interceptY(ball, player);
+        if (y < 0) {
+            approaching = false;
+            target = PongPhysics.HEIGHT / 2;
+        } else {
+            // A new approach: pick this one's aiming error, then wait out the reaction time
+            if (!approaching) {
+                approaching = true;
+                waited = 0;
+                rng += 0x9E3779B97F4A7C15L;
+                long r = (rng ^ (rng >>> 31)) * 0xBF58476D1CE4E5B9L;
+                int range = AIM_ERROR[skill];
+                error = range == 0 ? 0 : (int) ((r >>> 33) % (2 * range + 1)) - range;
+            }
+            if (waited >= REACTION_TICKS[skill]) target = y + error;
+            else waited++;
+        }
+
+        // Move at most maxSpeed per tick on average, never more than the paddles can
+        int centre = paddleY + PongPhysics.PADDLE_HEIGHT / 2;
+        int gap = target - centre;
+        if (Math.abs(gap) <= paddleSpeed / 2) return 0;
+        budget = Math.min(budget + maxSpeed, 2 * paddleSpeed);
+        if (budget < paddleSpeed) return 0;
+        budget -= paddleSpeed;
+        return gap < 0 ? PongSim.UP : PongSim.DOWN;
+    }
+
+    // Height (pixels) at which the ball's centre will reach player's paddle face, or -1 while
+    // it moves away from it
+    public static int interceptY(PongPhysics ball, int player) {
+        int face = player == 0
+                ? (PongPhysics.PADDLE_MARGIN + PongPhysics.PADDLE_WIDTH + PongPhysics.BALL_SIZE / 2) << PongPhysics.FP
+                : (PongPhysics.WIDTH - PongPhysics.PADDLE_MARGIN - PongPhysics.PADDLE_WIDTH - PongPhysics.BALL_SIZE / 2) << PongPhysics.FP;
+        if (player == 0 ? ball.vx >= 0 || ball.x < face : ball.vx <= 0 || ball.x > face) return -1;
+        long t = ((long) face - ball.x << PongPhysics.FP) / ball.vx;
+        long y = ball.y + (ball.vy * t >> PongPhysics.FP) - TOP;
+        // Reflections off both walls make the height a triangle wave of the straight line
+        long m = y % PERIOD;
+        if (m < 0) m += PERIOD;
+        if (m > PERIOD / 2) m = PERIOD - m;
+        return (int) (m + TOP + (PongPhysics.ONE >> 1) >> PongPhysics.FP);
+    }
+
+    public int getSkill() {
+        return skill;
+    }
+
+    // Matches still running after this many ticks are stopped and counted as unfinished
+    static final int MAX_MATCH_TICKS = 1 << 18;
+
+    public static void main(String[] args) {
+        int matches = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int left = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        int right = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+        int difficulty = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+        int paddleSpeed = PongGame.PADDLE_SPEEDS[difficulty];
+        PongSim sim = new PongSim(PongGame.BALL_SPEEDS[difficulty], paddleSpeed, PongGame.WIN_SCORES[difficulty]);
+        long wins1 = 0, unfinished = 0, ticks = 0, thinkNanos = 0;
+        long start = System.nanoTime();
+        for (int m = 0; m < matches; m++) {
+            sim.reset(m);
+            PongAI a = new PongAI(0, left, paddleSpeed, 2 * m), b = new PongAI(1, right, paddleSpeed, 2 * m + 1);
+            while (!sim.isOver() && sim.getFrame() < MAX_MATCH_TICKS) {
+                long t0 = System.nanoTime();
+                int in = PongSim.input(0, a.think(sim)) | PongSim.input(1, b.think(sim));
+                thinkNanos += System.nanoTime() - t0;
+                sim.step(in);
+                ticks++;
+            }
+            if (!sim.isOver()) unfinished++;
+            else if (sim.getScore1() > sim.getScore2()) wins1++;
+        }
+        long nanos = Math.max(1, System.nanoTime() - start);
+        System.out.println(String.format("%d matches, skill %d vs %d: left won %d, right won %d, unfinished %d",
+                matches, left, right, wins1, matches - wins1 - unfinished, unfinished));
+        System.out.println(String.format("%,d ticks in %.1f ms  (%,d ticks/sec, %.0f ns per tick for both CPUs)",
+                ticks, nanos / 1e6, ticks * 1000000000L / nanos, (double) thinkNanos / ticks));
+    }
+}
@@ -0,0 +1,308 @@
+package games;
+
+// Headless batch Pong for balancing BALL_SPEEDS, PADDLE_SPEEDS and WIN_SCORES: many CPU-vs-CPU
+// matches at one preset, run flat out on every core with no window and no timer. Each lane's
+// match is kept in plain arrays between ticks and stepped by loading it into one PongSim per
+// thread, so a rule change in PongSim reaches the batch too. A lane seeded with
+// seedFor(seed, i) plays, as its first match, the one PongSim.reset(seedFor(seed, i)) gives
+// with the same two PongAIs.
+//
+// Each lane plays its share of the matches back to back, continuing its own serve stream, and
+// lanes are split into contiguous ranges over the threads, so the statistics do not depend on
+// the thread count. A rally is counted in paddle hits from serve to point; a match still going
+// after PongAI.MAX_MATCH_TICKS ticks is stopped and counted as unfinished.
+//
+//   java games.PongBatch [matches per preset] [left skill] [right skill] [threads] [seed]
+public final class PongBatch {
+
+    private static final int MAX_LANES = 4096;
+    // Rally lengths from 0 to HISTOGRAM - 2 hits, the last bucket holding anything longer
+    private static final int HISTOGRAM = 1024;
+
+    private final int difficulty;
+    private final int ballSpeed;
+    private final int paddleSpeed;
+    private final int winScore;
+    private final int lanes;
+
+    private final int[] x;
+    private final int[] y;
+    private final int[] vx;
+    private final int[] vy;
+    private final int[] speed;
+    private final int[] paddle1Y;
+    private final int[] paddle2Y;
+    private final int[] score1;
+    private final int[] score2;
+    private final int[] frame;
+    private final int[] matchStart;
+    private final int[] rallyHits;
+    private final int[] rallyTicks;
+    private final int[] matchesLeft;
+    private final long[] rng;
+    private final PongAI[] left;
+    private final PongAI[] right;
+
+    // Results, filled in by run()
+    private long matches;
+    private long unfinished;
+    private long leftWins;
+    private long points;
+    private long pointTicks;
+    private long hits;
+    private int longestRally;
+    private final long[] rallies = new long[HISTOGRAM];
+
+    // matches at DIFFICULTIES[difficulty], left and right paddles played by PongAI at the
+    // given skills
+    public PongBatch(int difficulty, int matches, int leftSkill, int rightSkill, long seed) {
+        this.difficulty = difficulty;
+        ballSpeed = PongGame.BALL_SPEEDS[difficulty];
+        paddleSpeed = PongGame.PADDLE_SPEEDS[difficulty];
+        winScore = PongGame.WIN_SCORES[difficulty];
+        lanes = Math.max(1, Math.min(MAX_LANES, matches));
+
+        x = new int[lanes];
+        y = new int[lanes];
+        vx = new int[lanes];
+        vy = new int[lanes];
+        speed = new int[lanes];
+        paddle1Y = new int[lanes];
+        paddle2Y = new int[lanes];
+        score1 = new int[lanes];
+        score2 = new int[lanes];
+        frame = new int[lanes];
+        matchStart = new int[lanes];
+        rallyHits = new int[lanes];
+        rallyTicks = new int[lanes];
+        matchesLeft = new int[lanes];
+        rng = new long[lanes];
+        left = new PongAI[lanes];
+        right = new PongAI[lanes];
+
+        PongSim sim = newSim();
+        for (int i = 0; i < lanes; i++) {
+            matchesLeft[i] = (int) ((long) matches * (i + 1) / lanes - (long) matches * i / lanes);
+            rng[i] = seedFor(seed, i);
+            left[i] = new PongAI(0, leftSkill, paddleSpeed, ~rng[i]);
+            right[i] = new PongAI(1, rightSkill, paddleSpeed, rng[i] ^ 0x632BE59BD9B4E019L);
+            sim.reset(rng[i]);
+            matchStart[i] = 0;
+            store(i, sim);
+        }
+    }
+
+    private PongSim newSim() {
+        return new PongSim(ballSpeed, paddleSpeed, winScore);
+    }
+
+    // Seed PongSim needs to replay lane i's first match
+    public static long seedFor(long seed, int lane) {
+        return PongSim.mix(seed + lane * 0x9E3779B97F4A7C15L);
+    }
+
+    // Plays every match on threads threads (the calling one among them) and returns when done
+    public void run(int threads) {
+        threads = Math.max(1, Math.min(threads, lanes));
+        final Stats[] stats = new Stats[threads];
+        Thread[] workers = new Thread[threads - 1];
+        for (int t = 1; t < threads; t++) {
+            final Stats s = stats[t] = new Stats((int) ((long) lanes * t / threads), (int) ((long) lanes * (t + 1) / threads));
+            workers[t - 1] = new Thread(new Runnable() {
+                public void run() {
+                    runRange(s);
+                }
+            }, "pong-batch-" + t);
+            workers[t - 1].start();
+        }
+        stats[0] = new Stats(0, (int) ((long) lanes / threads));
+        runRange(stats[0]);
+        for (Thread w : workers) {
+            try {
+                w.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        for (Stats s : stats) {
+            matches += s.matches;
+            unfinished += s.unfinished;
+            leftWins += s.leftWins;
+            points += s.points;
+            pointTicks += s.pointTicks;
+            hits += s.hits;
+            longestRally = Math.max(longestRally, s.longestRally);
+            for (int k = 0; k < HISTOGRAM; k++) rallies[k] += s.rallies[k];
+        }
+    }
+
+    // Sweeps the range one tick per lane at a time until all its lanes are out of matches
+    private void runRange(Stats s) {
+        PongSim sim = newSim();
+        int active = s.to - s.from;
+        while (active > 0) {
+            active = 0;
+            for (int i = s.from; i < s.to; i++) {
+                if (matchesLeft[i] == 0) continue;
+                step(i, sim, s);
+                active++;
+            }
+        }
+    }
+
+    // One PongSim.step() of lane i with both CPUs' inputs
+    private void step(int i, PongSim sim, Stats s) {
+        PongPhysics ball = sim.getBall();
+        ball.x = x[i];
+        ball.y = y[i];
+        ball.vx = vx[i];
+        ball.vy = vy[i];
+        ball.speed = speed[i];
+        sim.load(paddle1Y[i], paddle2Y[i], score1[i], score2[i], frame[i], rng[i]);
+
+        int events = sim.step(PongSim.input(0, left[i].think(sim)) | PongSim.input(1, right[i].think(sim)));
+        rallyTicks[i]++;
+        if ((events & (PongPhysics.PADDLE1 | PongPhysics.PADDLE2)) != 0) rallyHits[i]++;
+
+        if ((events & PongSim.SCORED) != 0) {
+            s.point(rallyHits[i], rallyTicks[i]);
+            rallyHits[i] = 0;
+            rallyTicks[i] = 0;
+            if ((events & PongSim.GAME_OVER) != 0) {
+                s.matches++;
+                if (sim.getScore1() > sim.getScore2()) s.leftWins++;
+                endMatch(i, sim);
+            }
+        } else if (sim.getFrame() - matchStart[i] >= PongAI.MAX_MATCH_TICKS) {
+            s.unfinished++;
+            endMatch(i, sim);
+        }
+        store(i, sim);
+    }
+
+    // Where players would send RESTART the lane starts its next match straight away
+    private void endMatch(int i, PongSim sim) {
+        if (--matchesLeft[i] == 0) return;
+        sim.newMatch();
+        matchStart[i] = sim.getFrame();
+        rallyHits[i] = 0;
+        rallyTicks[i] = 0;
+    }
+
+    private void store(int i, PongSim sim) {
+        PongPhysics ball = sim.getBall();
+        x[i] = ball.x;
+        y[i] = ball.y;
+        vx[i] = ball.vx;
+        vy[i] = ball.vy;
+        speed[i] = ball.speed;
+        paddle1Y[i] = sim.getPaddle1Y();
+        paddle2Y[i] = sim.getPaddle2Y();
+        score1[i] = sim.getScore1();
+        score2[i] = sim.getScore2();
+        frame[i] = sim.getFrame();
+        rng[i] = sim.getRng();
+    }
+
+    public int getDifficulty() {
+        return difficulty;
+    }
+
+    // Finished matches; unfinished ones are counted apart
+    public long getMatches() {
+        return matches;
+    }
+
+    public long getUnfinished() {
+        return unfinished;
+    }
+
+    public long getLeftWins() {
+        return leftWins;
+    }
+
+    // Points scored, one per rally
+    public long getPoints() {
+        return points;
+    }
+
+    public long getPointTicks() {
+        return pointTicks;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public int getLongestRally() {
+        return longestRally;
+    }
+
+    // Smallest rally length (hits) that at least fraction q of rallies do not exceed
+    public int rallyPercentile(double q) {
+        long need = (long) Math.ceil(q * points), seen = 0;
+        for (int k = 0; k < HISTOGRAM - 1; k++) {
+            seen += rallies[k];
+            if (seen >= need && seen > 0) return k;
+        }
+        return longestRally;
+    }
+
+    // One thread's lanes and counts, merged once all are done
+    private static final class Stats {
+        final int from;
+        final int to;
+        long matches;
+        long unfinished;
+        long leftWins;
+        long points;
+        long pointTicks;
+        long hits;
+        int longestRally;
+        final long[] rallies = new long[HISTOGRAM];
+
+        Stats(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        void point(int rallyHits, int ticks) {
+            points++;
+            pointTicks += ticks;
+            hits += rallyHits;
+            longestRally = Math.max(longestRally, rallyHits);
+            rallies[Math.min(rallyHits, HISTOGRAM - 1)]++;
+        }
+    }
+
+    public static void main(String[] args) {
+        int matches = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int leftSkill = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        int rightSkill = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 1;
+
+        System.out.println(String.format("%,d matches per preset, skill %d (left) vs %d (right), %d threads",
+                matches, leftSkill, rightSkill, threads));
+        long totalPoints = 0, totalTicks = 0;
+        long start = System.nanoTime();
+        for (int d = 0; d < PongGame.WIN_SCORES.length; d++) {
+            PongBatch batch = new PongBatch(d, matches, leftSkill, rightSkill, seed);
+            batch.run(threads);
+            long points = Math.max(1, batch.getPoints());
+            totalPoints += batch.getPoints();
+            totalTicks += batch.getPointTicks();
+            System.out.println(String.format("%-7s ball %2d paddle %2d to %2d: left won %5.1f%% of %,d (%,d unfinished), %.1f points per match",
+                    PongGame.DIFFICULTIES[d], PongGame.BALL_SPEEDS[d], PongGame.PADDLE_SPEEDS[d], PongGame.WIN_SCORES[d],
+                    100.0 * batch.getLeftWins() / Math.max(1, batch.getMatches()), batch.getMatches(), batch.getUnfinished(),
+                    (double) batch.getPoints() / Math.max(1, batch.getMatches() + batch.getUnfinished())));
+            System.out.println(String.format("        rally hits: mean %.2f  p50 %d  p90 %d  p99 %d  max %d   %.1f s per point",
+                    (double) batch.getHits() / points, batch.rallyPercentile(0.5), batch.rallyPercentile(0.9),
+                    batch.rallyPercentile(0.99), batch.getLongestRally(), batch.getPointTicks() * 0.016 / points));
+        }
+        long nanos = Math.max(1, System.nanoTime() - start);
+        System.out.println(String.format("%,d rallies, %,d ticks in %.1f s  (%,d ticks/sec)",
+                totalPoints, totalTicks, nanos / 1e9, totalTicks * 1000000000L / nanos));
+    }
+}
@@ -9,31 +9,37 @@ import java.awt.event.KeyEvent;
 import javax.sound.sampled.*;
 import java.io.*;
 
-public class PongGame extends JPanel implements ActionListener {
+public class PongGame extends JPanel implements ActionListener, GameLoop.Game {
 
-    private static final int WIDTH = 800;
-    private static final int HEIGHT = 600;
-    private static final int PADDLE_WIDTH = 20;
-    private static final int PADDLE_HEIGHT = 100;
-    private static final int BALL_SIZE = 20;
+    private static final int WIDTH = PongPhysics.WIDTH;
+    private static final int HEIGHT = PongPhysics.HEIGHT;
+    private static final int PADDLE_WIDTH = PongPhysics.PADDLE_WIDTH;
+    private static final int PADDLE_HEIGHT = PongPhysics.PADDLE_HEIGHT;
+    private static final int BALL_SIZE = PongPhysics.BALL_SIZE;
 
     // Difficulty levels
-    private static final String[] DIFFICULTIES = {"Easy", "Normal", "Hard", "Insane"};
-    private static final int[] BALL_SPEEDS = {4, 6, 9, 13};
-    private static final int[] PADDLE_SPEEDS = {10, 8, 6, 4};
-    private static final int[] WIN_SCORES = {10, 15, 20, 25};
+    static final String[] DIFFICULTIES = {"Easy", "Normal", "Hard", "Insane"};
+    static final int[] BALL_SPEEDS = {4, 6, 9, 13};
+    static final int[] PADDLE_SPEEDS = {10, 8, 6, 4};
+    static final int[] WIN_SCORES = {10, 15, 20, 25};
 
     private int difficulty;
-    private int ballSpeed;
-    private int paddleSpeed;
     private int winScore;
 
+    // The match runs in a deterministic PongSim, stepped through PongNet in a network game
+    // (null otherwise); the fields below mirror it after every tick for painting
+    private final PongSim sim;
+    private final PongNet net;
+    private boolean restartPressed = false;
+    private boolean resultSaved = false;
+    private String netStatus = "";
+    // Computer players for the left and right paddle in a local game, or null for a person
+    private PongAI cpu1, cpu2;
+
     private int paddle1Y = (HEIGHT - PADDLE_HEIGHT) / 2;
     private int paddle2Y = (HEIGHT - PADDLE_HEIGHT) / 2;
     private int ballX = WIDTH / 2;
     private int ballY = HEIGHT / 2;
-    private int ballDX;
-    private int ballDY;
     private int score1 = 0;
     private int score2 = 0;
     private boolean gameOver = false;
@@ -41,7 +47,27 @@ public class PongGame extends JPanel implements ActionListener {
     private String player1Name = "Player 1";
     private String player2Name = "Player 2";
 
+    // Match wins and losses per player name, kept across runs
+    private final ScoreStore store = ScoreStore.shared();
+
     private Timer timer;
+    // Fixed-timestep loop used instead of the timer with -Dgames.loop=fixed; positions at
+    // the start of the last tick let frames interpolate between ticks
+    private GameLoop loop;
+    private double alpha = 1;
+    private int prevPaddle1Y = paddle1Y, prevPaddle2Y = paddle2Y, prevBallX, prevBallY;
+
+    // Frames blit the static background and repaint only where something moved: the spots
+    // painted last frame (shown*) and the new ones, plus the scores when they change
+    private final StaticLayer background = new StaticLayer(new StaticLayer.Painter() {
+        public void paintLayer(Graphics2D g, int width, int height) {
+            paintBackground(g, width, height);
+        }
+    });
+    private final DirtyRegion dirty = new DirtyRegion();
+    private int shownPaddle1Y = paddle1Y, shownPaddle2Y = paddle2Y, shownBallX, shownBallY;
+    // Keys go through the queue and are applied at the start of each tick
+    private final InputQueue input = new InputQueue("pong");
     private boolean up1Pressed = false;
     private boolean down1Pressed = false;
     private boolean up2Pressed = false;
@@ -53,64 +79,94 @@ public class PongGame extends JPanel implements ActionListener {
     private AudioFormat format;
 
     public PongGame(int selectedDifficulty) {
+        this(selectedDifficulty, null, null);
+    }
+
+    // Network game against the opponent net is connected to, at the host's difficulty
+    public PongGame(PongNet net, String localName) {
+        this(net.getDifficulty(), net, localName);
+    }
+
+    private PongGame(int selectedDifficulty, PongNet net, String localName) {
         this.difficulty = selectedDifficulty;
-        this.ballSpeed = BALL_SPEEDS[difficulty];
-        this.paddleSpeed = PADDLE_SPEEDS[difficulty];
         this.winScore = WIN_SCORES[difficulty];
+        this.net = net;
+        sim = new PongSim(BALL_SPEEDS[difficulty], PADDLE_SPEEDS[difficulty], winScore);
 
         setPreferredSize(new Dimension(WIDTH, HEIGHT));
         setBackground(Color.BLACK);
         setFocusable(true);
 
         initSounds();
-        initPlayerNames();
+        if (net == null) {
+            initCpus();
+            initPlayerNames();
+        } else {
+            player1Name = net.getPlayer() == 0 ? localName : net.getRemoteName();
+            player2Name = net.getPlayer() == 0 ? net.getRemoteName() : localName;
+        }
 
         addKeyListener(new KeyAdapter() {
             @Override
             public void keyPressed(KeyEvent e) {
-                int key = e.getKeyCode();
-                if (key == KeyEvent.VK_R && gameOver) {
-                    restart();
-                } else if (key == KeyEvent.VK_M) {
-                    soundEnabled = !soundEnabled;
-                    repaint();
-                } else if (!gameOver) {
-                    if (key == KeyEvent.VK_W) { up1Pressed = true; play(moveClip); }
-                    else if (key == KeyEvent.VK_S) { down1Pressed = true; play(moveClip); }
-                    else if (key == KeyEvent.VK_UP) { up2Pressed = true; play(moveClip); }
-                    else if (key == KeyEvent.VK_DOWN) { down2Pressed = true; play(moveClip); }
-                }
+                input.offer(InputQueue.KEY_PRESSED | e.getKeyCode());
             }
 
             @Override
             public void keyReleased(KeyEvent e) {
-                int key = e.getKeyCode();
-                if (key == KeyEvent.VK_W) up1Pressed = false;
-                else if (key == KeyEvent.VK_S) down1Pressed = false;
-                else if (key == KeyEvent.VK_UP) up2Pressed = false;
-                else if (key == KeyEvent.VK_DOWN) down2Pressed = false;
+                input.offer(InputQueue.KEY_RELEASED | e.getKeyCode());
             }
         });
 
-        timer = new Timer(16, this);
-        timer.start();
-        resetBall();
+        if (net == null) sim.reset(new java.util.Random().nextLong());
+        else net.start(sim);
+        syncFromSim();
+        prevPaddle1Y = paddle1Y;
+        prevPaddle2Y = paddle2Y;
+        prevBallX = ballX;
+        prevBallY = ballY;
+        markMoving();
+        if (GameLoop.enabled()) {
+            loop = new GameLoop(this, 1000.0 / 16);
+            loop.start();
+        } else {
+            timer = new Timer(16, this);
+            timer.start();
+        }
+    }
+
+    // -Dpong.cpu=left|right|both hands paddles to PongAI at -Dpong.cpu.skill (0 to 3,
+    // default the difficulty)
+    private void initCpus() {
+        String side = System.getProperty("pong.cpu", "").trim();
+        int skill = Math.max(0, Math.min(DIFFICULTIES.length - 1, Integer.getInteger("pong.cpu.skill", difficulty)));
+        long seed = new java.util.Random().nextLong();
+        if (side.equals("left") || side.equals("both")) cpu1 = new PongAI(0, skill, PADDLE_SPEEDS[difficulty], seed);
+        if (side.equals("right") || side.equals("both")) cpu2 = new PongAI(1, skill, PADDLE_SPEEDS[difficulty], ~seed);
     }
 
     private void initPlayerNames() {
-        player1Name = JOptionPane.showInputDialog(null,
-                "Enter Player 1 (Left Paddle) Name:", "Player 1");
-        if (player1Name == null || player1Name.trim().isEmpty())
-            player1Name = "Player 1";
-        else
-            player1Name = player1Name.trim();
-
-        player2Name = JOptionPane.showInputDialog(null,
-                "Enter Player 2 (Right Paddle) Name:", "Player 2");
-        if (player2Name == null || player2Name.trim().isEmpty())
-            player2Name = "Player 2";
-        else
-            player2Name = player2Name.trim();
+        if (cpu1 != null) {
+            player1Name = "CPU (" + DIFFICULTIES[cpu1.getSkill()] + ")";
+        } else {
+            player1Name = JOptionPane.showInputDialog(null,
+                    "Enter Player 1 (Left Paddle) Name:", "Player 1");
+            if (player1Name == null || player1Name.trim().isEmpty())
+                player1Name = "Player 1";
+            else
+                player1Name = player1Name.trim();
+        }
+
+        if (cpu2 != null) {
+            player2Name = "CPU (" + DIFFICULTIES[cpu2.getSkill()] + ")";
+        } else {
+            player2Name = JOptionPane.showInputDialog(null,
+                    "Enter Player 2 (Right Paddle) Name:", "Player 2");
+            if (player2Name == null || player2Name.trim().isEmpty())
+                player2Name = "Player 2";
+            else
+                player2Name = player2Name.trim();
+        }
     }
 
     private void initSounds() {
@@ -158,29 +214,80 @@ public class PongGame extends JPanel implements ActionListener {
         }
     }
 
-    private void restart() {
-        score1 = 0;
-        score2 = 0;
-        paddle1Y = (HEIGHT - PADDLE_HEIGHT) / 2;
-        paddle2Y = (HEIGHT - PADDLE_HEIGHT) / 2;
-        resetBall();
-        gameOver = false;
-        repaint();
+    private void syncFromSim() {
+        paddle1Y = sim.getPaddle1Y();
+        paddle2Y = sim.getPaddle2Y();
+        ballX = sim.getBall().pixelX();
+        ballY = sim.getBall().pixelY();
+        score1 = sim.getScore1();
+        score2 = sim.getScore2();
+        gameOver = sim.isOver();
     }
 
-    private void resetBall() {
-        ballX = WIDTH / 2;
-        ballY = HEIGHT / 2;
-        ballDX = (Math.random() < 0.5 ? ballSpeed : -ballSpeed);
-        ballDY = (int) (Math.random() * 6 - 3);
-        if (ballDY == 0) ballDY = 3;
+    // Applies the keys pressed and released since the last tick
+    private void readInput() {
+        long now = System.nanoTime();
+        while (input.poll(now)) {
+            int key = input.keyCode();
+            boolean down = input.type() == InputQueue.KEY_PRESSED;
+            if (key == KeyEvent.VK_W) up1Pressed = paddleKey(up1Pressed, down);
+            else if (key == KeyEvent.VK_S) down1Pressed = paddleKey(down1Pressed, down);
+            else if (key == KeyEvent.VK_UP) up2Pressed = paddleKey(up2Pressed, down);
+            else if (key == KeyEvent.VK_DOWN) down2Pressed = paddleKey(down2Pressed, down);
+            else if (down && key == KeyEvent.VK_R && gameOver) restartPressed = true;
+            else if (down && key == KeyEvent.VK_M) {
+                soundEnabled = !soundEnabled;
+                repaint();
+            }
+        }
     }
 
-    @Override
-    protected void paintComponent(Graphics g) {
-        super.paintComponent(g);
-        Graphics2D g2d = (Graphics2D) g;
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+    // New state of a held paddle key; it sounds when it goes down, not on auto-repeat
+    private boolean paddleKey(boolean held, boolean down) {
+        if (!down) return false;
+        if (gameOver) return held;
+        if (!held) play(moveClip);
+        return true;
+    }
+
+    private int keyBits(boolean up, boolean down) {
+        return (up ? PongSim.UP : 0) | (down ? PongSim.DOWN : 0) | (restartPressed ? PongSim.RESTART : 0);
+    }
+
+    private int lerp(int from, int to) {
+        return (int) Math.round(from + (to - from) * alpha);
+    }
+
+    // Marks the old and new spots of the paddles and ball and takes the new ones for painting
+    private void markMoving() {
+        int p1 = lerp(prevPaddle1Y, paddle1Y);
+        int p2 = lerp(prevPaddle2Y, paddle2Y);
+        int bx = lerp(prevBallX, ballX) - BALL_SIZE / 2;
+        int by = lerp(prevBallY, ballY) - BALL_SIZE / 2;
+        if (p1 != shownPaddle1Y) {
+            dirty.add(20, shownPaddle1Y, PADDLE_WIDTH, PADDLE_HEIGHT);
+            dirty.add(20, p1, PADDLE_WIDTH, PADDLE_HEIGHT);
+            shownPaddle1Y = p1;
+        }
+        if (p2 != shownPaddle2Y) {
+            dirty.add(WIDTH - 40, shownPaddle2Y, PADDLE_WIDTH, PADDLE_HEIGHT);
+            dirty.add(WIDTH - 40, p2, PADDLE_WIDTH, PADDLE_HEIGHT);
+            shownPaddle2Y = p2;
+        }
+        if (bx != shownBallX || by != shownBallY) {
+            // One pixel extra for the antialiased edge
+            dirty.add(shownBallX - 1, shownBallY - 1, BALL_SIZE + 2, BALL_SIZE + 2);
+            dirty.add(bx - 1, by - 1, BALL_SIZE + 2, BALL_SIZE + 2);
+            shownBallX = bx;
+            shownBallY = by;
+        }
+    }
+
+    // Everything that only changes with a new game: middle line, names, mode and controls
+    private void paintBackground(Graphics2D g, int width, int height) {
+        g.setColor(getBackground());
+        g.fillRect(0, 0, width, height);
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 
         // Middle line
         g.setColor(Color.WHITE);
@@ -188,22 +295,9 @@ public class PongGame extends JPanel implements ActionListener {
             g.fillRect(WIDTH / 2 - 2, i, 4, 15);
         }
 
-        // Paddles
-        g.fillRect(20, paddle1Y, PADDLE_WIDTH, PADDLE_HEIGHT);
-        g.fillRect(WIDTH - 40, paddle2Y, PADDLE_WIDTH, PADDLE_HEIGHT);
-
-        // Ball
-        g.fillOval(ballX - BALL_SIZE / 2, ballY - BALL_SIZE / 2, BALL_SIZE, BALL_SIZE);
-
-        // Scores & Names
-        g.setColor(Color.WHITE);
-        g.setFont(new Font("Arial", Font.BOLD, 48));
-        FontMetrics fm = g.getFontMetrics();
-        g.drawString(String.valueOf(score1), (WIDTH / 4) - fm.stringWidth(String.valueOf(score1)) / 2, 60);
-        g.drawString(String.valueOf(score2), (3 * WIDTH / 4) - fm.stringWidth(String.valueOf(score2)) / 2, 60);
-
+        // Names
         g.setFont(new Font("Arial", Font.BOLD, 24));
-        fm = g.getFontMetrics();
+        FontMetrics fm = g.getFontMetrics();
         g.drawString(player1Name, (WIDTH / 4) - fm.stringWidth(player1Name) / 2, 95);
         g.drawString(player2Name, (3 * WIDTH / 4) - fm.stringWidth(player2Name) / 2, 95);
 
@@ -214,8 +308,36 @@ public class PongGame extends JPanel implements ActionListener {
 
         // Controls
         g.setFont(new Font("Arial", Font.PLAIN, 16));
-        g.drawString("W/S: Left | Up/Down: Right | M: Sound | R: Restart", 10, HEIGHT - 40);
+        String controls;
+        if (net != null || (cpu1 == null) != (cpu2 == null)) controls = "W/S or Up/Down: Your paddle | M: Sound | R: Restart";
+        else if (cpu1 != null) controls = "M: Sound | R: Restart";
+        else controls = "W/S: Left | Up/Down: Right | M: Sound | R: Restart";
+        g.drawString(controls, 10, HEIGHT - 40);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        background.draw(this, g, 0, 0, WIDTH, HEIGHT);
+        Graphics2D g2d = (Graphics2D) g;
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+        // Paddles
+        g.setColor(Color.WHITE);
+        g.fillRect(20, shownPaddle1Y, PADDLE_WIDTH, PADDLE_HEIGHT);
+        g.fillRect(WIDTH - 40, shownPaddle2Y, PADDLE_WIDTH, PADDLE_HEIGHT);
+
+        // Ball
+        g.fillOval(shownBallX, shownBallY, BALL_SIZE, BALL_SIZE);
+
+        // Scores
+        g.setFont(new Font("Arial", Font.BOLD, 48));
+        FontMetrics fm = g.getFontMetrics();
+        g.drawString(String.valueOf(score1), (WIDTH / 4) - fm.stringWidth(String.valueOf(score1)) / 2, 60);
+        g.drawString(String.valueOf(score2), (3 * WIDTH / 4) - fm.stringWidth(String.valueOf(score2)) / 2, 60);
+
+        g.setFont(new Font("Arial", Font.PLAIN, 16));
         g.drawString("Sound: " + (soundEnabled ? "ON" : "OFF"), 10, HEIGHT - 20);
+        if (net != null) g.drawString(netStatus, WIDTH - g.getFontMetrics().stringWidth(netStatus) - 10, HEIGHT - 20);
 
         // Game Over
         if (gameOver) {
@@ -228,56 +350,87 @@ public class PongGame extends JPanel implements ActionListener {
             g.setColor(Color.WHITE);
             g.setFont(new Font("Arial", Font.PLAIN, 36));
             g.drawString("Press R to Play Again", (WIDTH - g.getFontMetrics().stringWidth("Press R to Play Again")) / 2, HEIGHT / 2 + 40);
+            g.setFont(new Font("Arial", Font.PLAIN, 24));
+            String records = record(player1Name) + "   " + record(player2Name);
+            g.drawString(records, (WIDTH - g.getFontMetrics().stringWidth(records)) / 2, HEIGHT / 2 + 90);
         }
     }
 
     @Override
     public void actionPerformed(ActionEvent e) {
-        if (gameOver) {
-            repaint();
-            return;
-        }
-
-        // Move paddles
-        if (up1Pressed && paddle1Y > 0) paddle1Y -= paddleSpeed;
-        if (down1Pressed && paddle1Y < HEIGHT - PADDLE_HEIGHT) paddle1Y += paddleSpeed;
-        if (up2Pressed && paddle2Y > 0) paddle2Y -= paddleSpeed;
-        if (down2Pressed && paddle2Y < HEIGHT - PADDLE_HEIGHT) paddle2Y += paddleSpeed;
-
-        // Move ball
-        ballX += ballDX;
-        ballY += ballDY;
+        tick();
+    }
 
-        // Wall bounce
-        if (ballY < BALL_SIZE / 2 || ballY > HEIGHT - BALL_SIZE / 2) {
-            ballDY = -ballDY;
-            play(wallClip);
-        }
+    public void render(double alpha) {
+        this.alpha = alpha;
+        markMoving();
+        dirty.paint(this);
+    }
 
-        // Paddle hit
-        if (ballX < 50 && ballY >= paddle1Y && ballY <= paddle1Y + PADDLE_HEIGHT && ballDX < 0) {
-            ballDX = -ballDX;
-            play(hitClip);
+    public void tick() {
+        prevPaddle1Y = paddle1Y;
+        prevPaddle2Y = paddle2Y;
+        prevBallX = ballX;
+        prevBallY = ballY;
+        readInput();
+
+        // Move paddles and ball; in a network game or against the CPU either key set moves the
+        // local paddle
+        int events;
+        if (net == null) {
+            int in1 = keyBits(up1Pressed, down1Pressed), in2 = keyBits(up2Pressed, down2Pressed);
+            if (cpu1 != null || cpu2 != null) in1 = in2 = in1 | in2;
+            if (cpu1 != null) in1 = cpu1.think(sim) | keyBits(false, false);
+            if (cpu2 != null) in2 = cpu2.think(sim) | keyBits(false, false);
+            events = sim.step(PongSim.input(0, in1) | PongSim.input(1, in2));
+        } else {
+            events = net.advance(keyBits(up1Pressed || up2Pressed, down1Pressed || down2Pressed));
+            updateNetStatus();
         }
-        if (ballX > WIDTH - 50 && ballY >= paddle2Y && ballY <= paddle2Y + PADDLE_HEIGHT && ballDX > 0) {
-            ballDX = -ballDX;
-            play(hitClip);
+        if (events != PongNet.NO_FRAME) {
+            restartPressed = false;
+            int oldScore1 = score1, oldScore2 = score2;
+            boolean wasOver = gameOver;
+            syncFromSim();
+            if ((events & (PongPhysics.PADDLE1 | PongPhysics.PADDLE2)) != 0) play(hitClip);
+            else if ((events & PongPhysics.WALL) != 0) play(wallClip);
+            if ((events & PongSim.SCORED) != 0) play(scoreClip);
+
+            // Compared rather than taken from events, as a rollback can change them too
+            if (score1 != oldScore1 || score2 != oldScore2) dirty.add(0, 0, WIDTH, 70);
+            if (gameOver != wasOver) dirty.addAll();
+            if (!gameOver) resultSaved = false;
+            else if (!resultSaved && (net == null || sim.getOverFrame() <= net.getConfirmedFrame())) endGame();
         }
 
-        // Score
-        if (ballX < 0) {
-            score2++;
-            play(scoreClip);
-            if (score2 >= winScore) gameOver = true;
-            else resetBall();
-        } else if (ballX > WIDTH) {
-            score1++;
-            play(scoreClip);
-            if (score1 >= winScore) gameOver = true;
-            else resetBall();
+        if (loop == null) {
+            markMoving();
+            dirty.paint(this);
         }
+    }
 
-        repaint();
+    // Link quality, or what the game is waiting for
+    private void updateNetStatus() {
+        String s = net.isWaiting() ? "Waiting for " + net.getRemoteName() + "..."
+                : String.format("Ping %d ms | %d rollbacks (last %d frames) | %.1f B/frame",
+                        net.getRoundTripMillis(), net.getRollbacks(), net.getRollbackDepth(), net.getBytesPerPacket());
+        if (s.equals(netStatus)) return;
+        netStatus = s;
+        dirty.add(WIDTH / 3, HEIGHT - 40, WIDTH - WIDTH / 3, 30);
+    }
+
+    // Records the result once it is final (in a network game, once no rollback can undo it)
+    private void endGame() {
+        resultSaved = true;
+        String winner = score1 >= winScore ? player1Name : player2Name;
+        String loser = score1 >= winScore ? player2Name : player1Name;
+        store.add("pong.wins." + winner, 1);
+        store.add("pong.losses." + loser, 1);
+        dirty.addAll();
+    }
+
+    private String record(String name) {
+        return name + ": " + store.get("pong.wins." + name) + "W " + store.get("pong.losses." + name) + "L";
     }
 
     // Settings Dialog (Java 1.7 style - no lambda)
@@ -296,15 +449,41 @@ public class PongGame extends JPanel implements ActionListener {
         return (choice >= 0) ? choice : 1;
     }
 
-    public static void main(String[] args) {
-        final int selectedDifficulty = showSettingsDialog();
+    private static String askName(String prompt, String fallback) {
+        String name = JOptionPane.showInputDialog(null, prompt, fallback);
+        return name == null || name.trim().isEmpty() ? fallback : name.trim();
+    }
+
+    // -Dpong.host=PORT hosts a game over the network and -Dpong.join=HOST:PORT joins one
+    public static void main(String[] args) throws IOException {
+        String host = System.getProperty("pong.host", "");
+        String join = System.getProperty("pong.join", "");
+        PongNet net = null;
+        String name = null;
+        int difficulty;
+        if (!host.isEmpty()) {
+            name = askName("Enter your name (left paddle):", "Player 1");
+            difficulty = showSettingsDialog();
+            net = PongNet.host(Integer.parseInt(host.trim()), name, difficulty);
+        } else if (!join.isEmpty()) {
+            name = askName("Enter your name (right paddle):", "Player 2");
+            int colon = join.lastIndexOf(':');
+            net = PongNet.join(join.substring(0, colon), Integer.parseInt(join.substring(colon + 1).trim()), name);
+            difficulty = net.getDifficulty();
+        } else {
+            difficulty = showSettingsDialog();
+        }
+        final int selectedDifficulty = difficulty;
+        final PongNet network = net;
+        final String localName = name;
 
         SwingUtilities.invokeLater(new Runnable() {
             @Override
             public void run() {
-                JFrame frame = new JFrame("Pong - " + DIFFICULTIES[selectedDifficulty] + " Mode");
+                JFrame frame = new JFrame("Pong - " + DIFFICULTIES[selectedDifficulty] + " Mode"
+                        + (network == null ? "" : " - " + (network.getPlayer() == 0 ? "Host" : "Guest")));
                 frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-                frame.add(new PongGame(selectedDifficulty));
+                frame.add(network == null ? new PongGame(selectedDifficulty) : new PongGame(network, localName));
                 frame.pack();
                 frame.setLocationRelativeTo(null);
                 frame.setResizable(false);
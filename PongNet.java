@@ -0,0 +1,376 @@
+package games;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.charset.Charset;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+// Two-machine Pong over UDP with rollback. Only inputs cross the network: each side runs the
+// same deterministic PongSim, steps it every frame with its own input at once and the
+// opponent's last known input as a prediction, and keeps a snapshot of the state before each
+// of the last HISTORY frames. When the real input for a predicted frame arrives and differs,
+// it restores that frame's snapshot and re-simulates up to the present within the same tick,
+// so a late packet never holds up the local paddle.
+//
+// Every frame sends one INPUT packet: newest frame number, the newest opponent frame it has
+// (the ack), its frame advantage, and the 4-bit inputs of all frames the opponent has not
+// acknowledged, so a lost packet is covered by the next one; about a dozen bytes when the
+// link is fine. A side running more than a frame ahead of the other skips a tick now and then
+// to let it catch up, and one HISTORY frames ahead of the opponent's inputs waits for them.
+//
+// The host (left paddle) waits for a HELLO and answers with WELCOME: seed, difficulty and name.
+// -Dpong.net.latency and -Dpong.net.jitter (ms, one way) and -Dpong.net.loss (0 to 1) delay
+// and drop outgoing packets to try bad links on loopback.
+public final class PongNet {
+
+    public static final int HISTORY = 256;
+    private static final int MASK = HISTORY - 1;
+    // advance() result when no frame was stepped this tick
+    public static final int NO_FRAME = -1;
+
+    private static final byte INPUT = 1;
+    private static final byte HELLO = 2;
+    private static final byte WELCOME = 3;
+    private static final int SYNC_INTERVAL = 8;
+    private static final long RESEND_MILLIS = 200;
+    private static final long JOIN_TIMEOUT_MILLIS = 30000;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final DatagramChannel channel;
+    private SocketAddress peer;
+    private final int player;
+    private long seed;
+    private int difficulty;
+    private String remoteName = "";
+    private String localName = "";
+    private boolean welcomed;
+
+    private PongSim sim;
+    private final PongSim[] snapshots = new PongSim[HISTORY];
+    private final byte[] localInputs = new byte[HISTORY];
+    private final byte[] remoteInputs = new byte[HISTORY];
+    private final byte[] usedRemote = new byte[HISTORY];
+    private final long[] sentNanos = new long[HISTORY];
+    // Opponent inputs are known for every frame up to remoteFrame; remoteNewest is the latest
+    // frame it has reported, remoteAck the latest of ours it has
+    private int remoteFrame = -1;
+    private int remoteNewest = -1;
+    private int remoteAck = -1;
+    private int remoteAdvantage;
+    private int rollbackFrom = Integer.MAX_VALUE;
+    private int sinceSkip;
+
+    // Link statistics
+    private long bytesSent;
+    private long packetsSent;
+    private int rollbacks;
+    private int rollbackDepth;
+    private int rttMillis;
+
+    // Simulated link: outgoing packets wait in delayed until their time
+    private final int latencyMillis = Integer.getInteger("pong.net.latency", 0);
+    private final int jitterMillis = Integer.getInteger("pong.net.jitter", 0);
+    private final double loss = Double.parseDouble(System.getProperty("pong.net.loss", "0"));
+    private final Random random = new Random();
+    private final PriorityQueue<Delayed> delayed = new PriorityQueue<Delayed>(16, new Comparator<Delayed>() {
+        public int compare(Delayed a, Delayed b) {
+            return a.due < b.due ? -1 : a.due > b.due ? 1 : 0;
+        }
+    });
+
+    private final ByteBuffer in = ByteBuffer.allocate(2048);
+    private final ByteBuffer out = ByteBuffer.allocate(2048);
+
+    private static final class Delayed {
+        final long due;
+        final ByteBuffer data;
+
+        Delayed(long due, ByteBuffer data) {
+            this.due = due;
+            this.data = data;
+        }
+    }
+
+    private PongNet(DatagramChannel channel, int player) throws IOException {
+        this.channel = channel;
+        this.player = player;
+        channel.configureBlocking(false);
+        for (int i = 0; i < HISTORY; i++) snapshots[i] = new PongSim(0, 0, 1);
+    }
+
+    // Binds port and waits for an opponent; the host plays the left paddle
+    public static PongNet host(int port, String name, int difficulty) throws IOException {
+        DatagramChannel ch = DatagramChannel.open();
+        ch.socket().bind(new InetSocketAddress(port));
+        PongNet net = new PongNet(ch, 0);
+        net.localName = name;
+        net.difficulty = difficulty;
+        net.seed = new Random().nextLong();
+        System.out.println("Waiting for an opponent on UDP port " + port + "...");
+        // Also until the (possibly delayed) WELCOME has gone out
+        while (net.peer == null || !net.delayed.isEmpty()) {
+            net.poll();
+            net.sleep();
+        }
+        return net;
+    }
+
+    // Asks the host at address:port to play and waits for its answer; the guest plays the right paddle
+    public static PongNet join(String address, int port, String name) throws IOException {
+        DatagramChannel ch = DatagramChannel.open();
+        ch.socket().bind(null);
+        PongNet net = new PongNet(ch, 1);
+        net.localName = name;
+        net.peer = new InetSocketAddress(address, port);
+        long start = System.currentTimeMillis(), hello = 0;
+        while (!net.welcomed) {
+            long now = System.currentTimeMillis();
+            if (now - start > JOIN_TIMEOUT_MILLIS) {
+                ch.close();
+                throw new IOException("No answer from " + address + ":" + port);
+            }
+            if (now - hello >= RESEND_MILLIS) {
+                net.sendHello();
+                hello = now;
+            }
+            net.poll();
+            net.sleep();
+        }
+        return net;
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(5);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Takes over sim, reset to the shared seed; call once after host() or join()
+    public void start(PongSim sim) {
+        this.sim = sim;
+        sim.reset(seed);
+    }
+
+    // Steps one frame with the local player's UP/DOWN/RESTART bits, after applying whatever
+    // arrived from the opponent; returns that frame's PongSim events, or NO_FRAME when this
+    // tick is skipped to stay in step with the opponent or is waiting for its inputs
+    public int advance(int localBits) {
+        poll();
+        int f = sim.getFrame();
+        if (isWaiting()) {
+            send();
+            return NO_FRAME;
+        }
+        int advantage = f - remoteNewest;
+        if (++sinceSkip >= SYNC_INTERVAL && advantage - remoteAdvantage >= 3) {
+            sinceSkip = 0;
+            return NO_FRAME;
+        }
+
+        if (rollbackFrom < f) {
+            rollbacks++;
+            rollbackDepth = f - rollbackFrom;
+            sim.copyFrom(snapshots[rollbackFrom & MASK]);
+            for (int g = rollbackFrom; g < f; g++) stepFrame(g);
+        }
+        rollbackFrom = Integer.MAX_VALUE;
+
+        localInputs[f & MASK] = (byte) localBits;
+        sentNanos[f & MASK] = System.nanoTime();
+        int events = stepFrame(f);
+        send();
+        return events;
+    }
+
+    private int stepFrame(int g) {
+        snapshots[g & MASK].copyFrom(sim);
+        int remote;
+        if (g <= remoteFrame) remote = remoteInputs[g & MASK];
+        else remote = remoteFrame >= 0 ? remoteInputs[remoteFrame & MASK] & (PongSim.UP | PongSim.DOWN) : 0;
+        usedRemote[g & MASK] = (byte) remote;
+        return sim.step(PongSim.input(player, localInputs[g & MASK]) | PongSim.input(1 - player, remote));
+    }
+
+    // Drains the socket and sends packets whose simulated delay is over
+    private void poll() {
+        try {
+            long now = System.nanoTime();
+            while (!delayed.isEmpty() && delayed.peek().due <= now) {
+                channel.send(delayed.poll().data, peer);
+            }
+            while (true) {
+                in.clear();
+                SocketAddress from = channel.receive(in);
+                if (from == null) break;
+                in.flip();
+                if (in.remaining() > 0) receive(from);
+            }
+        } catch (IOException ex) {
+            // Lost packets are covered by the next ones
+        }
+    }
+
+    private void receive(SocketAddress from) {
+        byte type = in.get();
+        if (type == HELLO && player == 0) {
+            if (peer == null) {
+                peer = from;
+                remoteName = readName();
+            }
+            if (from.equals(peer)) sendWelcome();
+        } else if (type == WELCOME && player == 1 && !welcomed && in.remaining() >= 12) {
+            seed = in.getLong();
+            difficulty = in.getInt();
+            remoteName = readName();
+            welcomed = true;
+        } else if (type == INPUT && sim != null && from.equals(peer) && in.remaining() >= 10) {
+            int newest = in.getInt();
+            int ack = in.getInt();
+            int advantage = in.get();
+            int n = in.get() & 0xFF;
+            if (ack > remoteAck) {
+                if (ack < sim.getFrame() && ack > sim.getFrame() - HISTORY) {
+                    rttMillis = (int) ((System.nanoTime() - sentNanos[ack & MASK]) / 1000000);
+                }
+                remoteAck = ack;
+            }
+            if (newest > remoteNewest) {
+                remoteNewest = newest;
+                remoteAdvantage = advantage;
+            }
+            int first = newest - n + 1;
+            for (int i = 0; i < n && in.remaining() >= (i + 2) / 2; i++) {
+                int g = first + i;
+                if (g <= remoteFrame) continue;
+                if (g != remoteFrame + 1 || g - sim.getFrame() >= HISTORY - 1) break;
+                int bits = in.get(in.position() + i / 2) >> (i & 1) * 4 & 0xF;
+                remoteInputs[g & MASK] = (byte) bits;
+                remoteFrame = g;
+                if (g < sim.getFrame() && usedRemote[g & MASK] != bits) rollbackFrom = Math.min(rollbackFrom, g);
+            }
+        }
+    }
+
+    // Newest frame, ack, advantage, then every frame the opponent has not acknowledged
+    private void send() {
+        int f = sim.getFrame();
+        if (f == 0 || peer == null) return;
+        int first = Math.max(remoteAck + 1, f - 255);
+        if (first > f - 1) first = f - 1;
+        int n = f - first;
+        out.clear();
+        out.put(INPUT).putInt(f - 1).putInt(remoteFrame);
+        out.put((byte) Math.max(-128, Math.min(127, f - remoteNewest)));
+        out.put((byte) n);
+        for (int i = 0; i < n; i += 2) {
+            int lo = localInputs[(first + i) & MASK];
+            int hi = i + 1 < n ? localInputs[(first + i + 1) & MASK] : 0;
+            out.put((byte) (lo | hi << 4));
+        }
+        out.flip();
+        transmit(out);
+    }
+
+    private void sendHello() {
+        out.clear();
+        out.put(HELLO);
+        putName();
+        out.flip();
+        transmit(out);
+    }
+
+    private void sendWelcome() {
+        out.clear();
+        out.put(WELCOME).putLong(seed).putInt(difficulty);
+        putName();
+        out.flip();
+        transmit(out);
+    }
+
+    private void putName() {
+        byte[] b = localName.getBytes(UTF8);
+        out.put(b, 0, Math.min(b.length, 64));
+    }
+
+    private String readName() {
+        byte[] b = new byte[Math.min(in.remaining(), 64)];
+        in.get(b);
+        return new String(b, UTF8);
+    }
+
+    private void transmit(ByteBuffer b) {
+        bytesSent += b.remaining();
+        packetsSent++;
+        if (loss > 0 && random.nextDouble() < loss) return;
+        try {
+            if (latencyMillis <= 0 && jitterMillis <= 0) {
+                channel.send(b, peer);
+                return;
+            }
+            ByteBuffer copy = ByteBuffer.allocate(b.remaining());
+            copy.put(b).flip();
+            long delay = latencyMillis + (jitterMillis > 0 ? random.nextInt(jitterMillis + 1) : 0);
+            delayed.add(new Delayed(System.nanoTime() + delay * 1000000L, copy));
+        } catch (IOException ex) {
+            // Dropped like any other lost packet
+        }
+    }
+
+    // 0 for the host (left paddle), 1 for the guest
+    public int getPlayer() {
+        return player;
+    }
+
+    public int getDifficulty() {
+        return difficulty;
+    }
+
+    public String getRemoteName() {
+        return remoteName;
+    }
+
+    // Frames whose inputs from both sides are known; states up to here can no longer change
+    public int getConfirmedFrame() {
+        return Math.min(sim.getFrame(), remoteFrame + 1);
+    }
+
+    // True while the simulation is held up by missing opponent inputs, or by our own
+    // unacknowledged ones: those must fit in one packet, or the one the opponent needs next
+    // could never be resent after an outage
+    public boolean isWaiting() {
+        int f = sim.getFrame();
+        return f - remoteFrame >= HISTORY - 1 || f - remoteAck >= HISTORY - 1;
+    }
+
+    public int getRoundTripMillis() {
+        return rttMillis;
+    }
+
+    public int getRollbacks() {
+        return rollbacks;
+    }
+
+    // Frames re-simulated by the last rollback
+    public int getRollbackDepth() {
+        return rollbackDepth;
+    }
+
+    public double getBytesPerPacket() {
+        return packetsSent == 0 ? 0 : (double) bytesSent / packetsSent;
+    }
+
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException ex) {
+            // Nothing to clean up
+        }
+    }
+}
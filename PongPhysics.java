@@ -0,0 +1,149 @@
+package games;
+
+// Pong ball physics in 16.16 fixed point. sweepBall() moves the ball through a whole tick as
+// a sequence of straight segments: it finds the earliest impact with a wall or a paddle face
+// within the time left, moves exactly there, reflects and continues, so no speed can carry the
+// ball through a paddle or bounce it twice off one wall. The ball is a BALL_SIZE square
+// centred on (x, y); paddles count from their face, their ends widened by the ball's radius.
+//
+// Where the ball meets the paddle sets the outgoing angle, up to MAX_ANGLE_STEPS * 5 degrees
+// off horizontal at the ends, at unchanged speed. All arithmetic is integer (the direction
+// table comes from StrictMath), so a given sequence of calls gives the same result on any JVM.
+public final class PongPhysics {
+
+    public static final int WIDTH = 800;
+    public static final int HEIGHT = 600;
+    public static final int PADDLE_WIDTH = 20;
+    public static final int PADDLE_HEIGHT = 100;
+    public static final int PADDLE_MARGIN = 20;
+    public static final int BALL_SIZE = 20;
+
+    public static final int FP = 16;
+    public static final int ONE = 1 << FP;
+
+    // Events reported by sweepBall()
+    public static final int WALL = 1;
+    public static final int PADDLE1 = 2;
+    public static final int PADDLE2 = 4;
+    public static final int OUT_LEFT = 8;
+    public static final int OUT_RIGHT = 16;
+
+    private static final int R = BALL_SIZE / 2 << FP;
+    private static final int TOP = R;
+    private static final int BOTTOM = (HEIGHT << FP) - R;
+    // Ball centre x at which it touches a paddle face
+    private static final int FACE1 = (PADDLE_MARGIN + PADDLE_WIDTH << FP) + R;
+    private static final int FACE2 = (WIDTH - PADDLE_MARGIN - PADDLE_WIDTH << FP) - R;
+    private static final int MAX_BOUNCES = 8;
+
+    // cos and sin of 0, 5, 10 ... degrees in fixed point
+    private static final int ANGLE_STEP_DEGREES = 5;
+    public static final int MAX_ANGLE_STEPS = 12;
+    private static final int[] COS = new int[MAX_ANGLE_STEPS + 1];
+    private static final int[] SIN = new int[MAX_ANGLE_STEPS + 1];
+    static {
+        for (int k = 0; k <= MAX_ANGLE_STEPS; k++) {
+            double a = StrictMath.toRadians(k * ANGLE_STEP_DEGREES);
+            COS[k] = (int) StrictMath.round(StrictMath.cos(a) * ONE);
+            SIN[k] = (int) StrictMath.round(StrictMath.sin(a) * ONE);
+        }
+    }
+
+    // Centre and velocity per tick, fixed point
+    public int x, y, vx, vy;
+    // Speed along the direction of travel, fixed point pixels per tick
+    public int speed;
+
+    // Centres the ball and sends it toward dir (-1 left, 1 right) at speed pixels per tick,
+    // angle steps (of MAX_ANGLE_STEPS either way) off horizontal; negative angles go up
+    public void serve(int dir, int speedPixels, int angle) {
+        x = WIDTH / 2 << FP;
+        y = HEIGHT / 2 << FP;
+        speed = speedPixels << FP;
+        aim(dir, angle);
+    }
+
+    private void aim(int dir, int angle) {
+        int k = Math.max(-MAX_ANGLE_STEPS, Math.min(MAX_ANGLE_STEPS, angle));
+        vx = dir * (int) ((long) speed * COS[Math.abs(k)] >> FP);
+        vy = Integer.signum(k) * (int) ((long) speed * SIN[Math.abs(k)] >> FP);
+    }
+
+    // Moves the ball through one tick against paddles whose tops are at paddle1Y and paddle2Y
+    // (pixels); returns the events that happened, OUT_* once the centre has left the field
+    public int sweepBall(int paddle1Y, int paddle2Y) {
+        int events = 0;
+        long left = ONE;
+        for (int i = 0; i < MAX_BOUNCES && left > 0; i++) {
+            long t = left;
+            int hit = 0;
+            if (vy < 0 || vy > 0) {
+                long w = timeTo(y, vy < 0 ? TOP : BOTTOM, vy);
+                if (w <= t) {
+                    t = w;
+                    hit = WALL;
+                }
+            }
+            if (vx < 0 && x >= FACE1) {
+                long p = timeTo(x, FACE1, vx);
+                if (p < t && isOnPaddle(yAfter(p), paddle1Y)) {
+                    t = p;
+                    hit = PADDLE1;
+                }
+            } else if (vx > 0 && x <= FACE2) {
+                long p = timeTo(x, FACE2, vx);
+                if (p < t && isOnPaddle(yAfter(p), paddle2Y)) {
+                    t = p;
+                    hit = PADDLE2;
+                }
+            }
+
+            x += (int) (vx * t >> FP);
+            y += (int) (vy * t >> FP);
+            left -= t;
+            events |= hit;
+            if (hit == WALL) {
+                y = vy < 0 ? TOP : BOTTOM;
+                vy = -vy;
+            } else if (hit == PADDLE1) {
+                x = FACE1;
+                aim(1, angleFor(paddle1Y));
+            } else if (hit == PADDLE2) {
+                x = FACE2;
+                aim(-1, angleFor(paddle2Y));
+            }
+        }
+        if (x < 0) events |= OUT_LEFT;
+        else if (x > WIDTH << FP) events |= OUT_RIGHT;
+        return events;
+    }
+
+    // Fraction of a tick (fixed point) until pos reaches target at velocity v; 0 if already past
+    private static long timeTo(int pos, int target, int v) {
+        return Math.max(0, ((long) target - pos << FP) / v);
+    }
+
+    private int yAfter(long t) {
+        return y + (int) (vy * t >> FP);
+    }
+
+    private static boolean isOnPaddle(int ballY, int paddleY) {
+        long top = ((long) paddleY << FP) - R;
+        return ballY >= top && ballY <= top + ((long) PADDLE_HEIGHT << FP) + 2 * R;
+    }
+
+    // Angle step for a ball at y hitting a paddle: 0 at its centre, MAX_ANGLE_STEPS at its ends
+    private int angleFor(int paddleY) {
+        long offset = y - ((long) paddleY << FP) - ((long) PADDLE_HEIGHT << FP) / 2;
+        long span = ((long) PADDLE_HEIGHT << FP) / 2 + R;
+        return (int) ((offset * MAX_ANGLE_STEPS * 2 + (offset < 0 ? -span : span)) / (2 * span));
+    }
+
+    public int pixelX() {
+        return x + (ONE >> 1) >> FP;
+    }
+
+    public int pixelY() {
+        return y + (ONE >> 1) >> FP;
+    }
+}
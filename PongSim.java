@@ -0,0 +1,191 @@
+package games;
+
+// Deterministic Pong match: paddles, ball, score and serve in integers only, advanced one frame
+// at a time from the players' inputs. Two copies fed the same seed and inputs stay identical,
+// which is what PongNet's rollback relies on; copyFrom() takes the snapshots it rolls back to.
+//
+// Each player's input is three bits (UP, DOWN, RESTART) at bit 3 * player of the frame's
+// input word; RESTART from either player starts a new match once one is over.
+public final class PongSim {
+
+    public static final int UP = 1;
+    public static final int DOWN = 2;
+    public static final int RESTART = 4;
+    public static final int BITS = 3;
+
+    // Events from step(), on top of PongPhysics' ball events
+    public static final int SCORED = 32;
+    public static final int GAME_OVER = 64;
+    public static final int NEW_MATCH = 128;
+
+    private final int ballSpeed;
+    private final int paddleSpeed;
+    private final int winScore;
+
+    private final PongPhysics ball = new PongPhysics();
+    private int paddle1Y;
+    private int paddle2Y;
+    private int score1;
+    private int score2;
+    private int frame;
+    private int overFrame = -1;
+    private long rng;
+
+    public PongSim(int ballSpeed, int paddleSpeed, int winScore) {
+        this.ballSpeed = ballSpeed;
+        this.paddleSpeed = paddleSpeed;
+        this.winScore = winScore;
+        reset(0);
+    }
+
+    public void reset(long seed) {
+        rng = seed;
+        frame = 0;
+        newMatch();
+    }
+
+    // Also called by PongBatch, which starts each lane's next match at once
+    void newMatch() {
+        score1 = 0;
+        score2 = 0;
+        overFrame = -1;
+        paddle1Y = (PongPhysics.HEIGHT - PongPhysics.PADDLE_HEIGHT) / 2;
+        paddle2Y = paddle1Y;
+        serve();
+    }
+
+    private void serve() {
+        rng += 0x9E3779B97F4A7C15L;
+        serve(ball, ballSpeed, mix(rng));
+    }
+
+    // Serves from random bits r: toward a random side, 5 to 20 degrees up or down
+    static void serve(PongPhysics ball, int ballSpeed, long r) {
+        int angle = 1 + (int) (r & 3);
+        ball.serve((r & 4) != 0 ? 1 : -1, ballSpeed, (r & 8) != 0 ? -angle : angle);
+    }
+
+    // splitmix64 finaliser
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    // A paddle's top after one frame of a player's input bits
+    static int movePaddle(int paddleY, int bits, int paddleSpeed) {
+        if ((bits & UP) != 0 && paddleY > 0) paddleY -= paddleSpeed;
+        if ((bits & DOWN) != 0 && paddleY < PongPhysics.HEIGHT - PongPhysics.PADDLE_HEIGHT) paddleY += paddleSpeed;
+        return paddleY;
+    }
+
+    // Advances one frame; returns PongPhysics and PongSim event bits
+    public int step(int inputs) {
+        frame++;
+        int in1 = inputs & 7, in2 = inputs >> BITS & 7;
+        if (isOver()) {
+            if (((in1 | in2) & RESTART) == 0) return 0;
+            newMatch();
+            return NEW_MATCH;
+        }
+
+        paddle1Y = movePaddle(paddle1Y, in1, paddleSpeed);
+        paddle2Y = movePaddle(paddle2Y, in2, paddleSpeed);
+
+        int events = ball.sweepBall(paddle1Y, paddle2Y);
+        if ((events & (PongPhysics.OUT_LEFT | PongPhysics.OUT_RIGHT)) != 0) {
+            if ((events & PongPhysics.OUT_LEFT) != 0) score2++;
+            else score1++;
+            events |= SCORED;
+            if (score1 >= winScore || score2 >= winScore) {
+                overFrame = frame;
+                events |= GAME_OVER;
+            } else {
+                serve();
+            }
+        }
+        return events;
+    }
+
+    // Puts a match in progress in place, for PongBatch to step its lanes through one PongSim;
+    // the ball is set through getBall()
+    void load(int paddle1Y, int paddle2Y, int score1, int score2, int frame, long rng) {
+        this.paddle1Y = paddle1Y;
+        this.paddle2Y = paddle2Y;
+        this.score1 = score1;
+        this.score2 = score2;
+        this.frame = frame;
+        this.rng = rng;
+        overFrame = -1;
+    }
+
+    long getRng() {
+        return rng;
+    }
+
+    public void copyFrom(PongSim o) {
+        ball.x = o.ball.x;
+        ball.y = o.ball.y;
+        ball.vx = o.ball.vx;
+        ball.vy = o.ball.vy;
+        ball.speed = o.ball.speed;
+        paddle1Y = o.paddle1Y;
+        paddle2Y = o.paddle2Y;
+        score1 = o.score1;
+        score2 = o.score2;
+        frame = o.frame;
+        overFrame = o.overFrame;
+        rng = o.rng;
+    }
+
+    // Digest of the whole state, to check two simulations agree
+    public long checksum() {
+        long h = rng;
+        int[] v = {ball.x, ball.y, ball.vx, ball.vy, ball.speed, paddle1Y, paddle2Y, score1, score2, frame, overFrame};
+        for (int x : v) h = h * 0x100000001B3L ^ x;
+        return h;
+    }
+
+    // Input word for one player's UP/DOWN/RESTART bits
+    public static int input(int player, int bits) {
+        return bits << BITS * player;
+    }
+
+    public PongPhysics getBall() {
+        return ball;
+    }
+
+    public int getPaddle1Y() {
+        return paddle1Y;
+    }
+
+    public int getPaddle2Y() {
+        return paddle2Y;
+    }
+
+    public int getScore1() {
+        return score1;
+    }
+
+    public int getScore2() {
+        return score2;
+    }
+
+    public int getWinScore() {
+        return winScore;
+    }
+
+    // Frames stepped since reset()
+    public int getFrame() {
+        return frame;
+    }
+
+    public boolean isOver() {
+        return overFrame >= 0;
+    }
+
+    // Frame on which the match was won, or -1
+    public int getOverFrame() {
+        return overFrame;
+    }
+}
@@ -0,0 +1,295 @@
+package games;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+// Small persistent key -> long store for high scores and results, shared by the games.
+// Values live in memory; every change is also appended to a journal file as a checksummed
+// record: 4-byte CRC32 of the rest, unsigned 16-bit key length, op byte, 64-bit value, UTF-8
+// key. SET replaces a value, ADD adds to it. Reopening replays the journal and cuts off a
+// torn record left by a crash.
+//
+// Callers never touch the disk: records are queued to a writer thread that collects what
+// arrives within BATCH_MILLIS, writes it through the FileChannel and fsyncs once per batch.
+// Once the journal holds COMPACT_FACTOR times more records than keys, the writer rewrites
+// it as one SET per key into a temporary file and renames that over the journal, so its
+// size follows the number of keys rather than the years of history.
+//
+// A lock file keeps a second process from writing the same journal; it then gets an
+// in-memory store. See shared() for the store the games use (-Dgames.store).
+public final class ScoreStore {
+
+    public static final int MAGIC = 0x53434442; // "SCDB"
+    public static final int VERSION = 1;
+    public static final int HEADER = 8;
+
+    private static final byte SET = 1;
+    private static final byte ADD = 2;
+    private static final int RECORD_FIXED = 4 + 2 + 1 + 8;
+    private static final long BATCH_MILLIS = 100;
+    private static final int COMPACT_FACTOR = 4;
+    private static final int COMPACT_MIN_RECORDS = 1024;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final ByteBuffer CLOSE = ByteBuffer.allocate(0);
+
+    private static ScoreStore shared;
+
+    private final File file;
+    private final Map<String, Long> values = new HashMap<String, Long>();
+    private final LinkedBlockingQueue<ByteBuffer> pending = new LinkedBlockingQueue<ByteBuffer>();
+    private RandomAccessFile journal;
+    private FileChannel channel;
+    private RandomAccessFile lockFile;
+    private FileLock lock;
+    private int records;
+    private Thread writer;
+
+    // Store kept only in memory
+    public ScoreStore() {
+        file = null;
+    }
+
+    // Opens (or creates) the journal at file and starts its writer thread
+    public ScoreStore(File file) throws IOException {
+        this.file = file;
+        lockFile = new RandomAccessFile(new File(file.getPath() + ".lock"), "rw");
+        try {
+            try {
+                lock = lockFile.getChannel().tryLock();
+            } catch (java.nio.channels.OverlappingFileLockException ex) {
+                lock = null;
+            }
+            if (lock == null) throw new IOException(file + " is already open");
+            journal = new RandomAccessFile(file, "rw");
+            channel = journal.getChannel();
+            load();
+        } catch (IOException ex) {
+            closeFiles();
+            throw ex;
+        }
+        writer = new Thread(new Runnable() {
+            public void run() {
+                writeLoop();
+            }
+        }, "score-store");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // Process-wide store at -Dgames.store (default scores.db), closed by a shutdown hook; falls
+    // back to memory if the file can't be used
+    public static synchronized ScoreStore shared() {
+        if (shared != null) return shared;
+        File f = new File(System.getProperty("games.store", "scores.db"));
+        try {
+            shared = new ScoreStore(f);
+            final ScoreStore store = shared;
+            Runtime.getRuntime().addShutdownHook(new Thread() {
+                public void run() {
+                    store.close();
+                }
+            });
+        } catch (IOException ex) {
+            System.err.println("Scores will not be saved: " + ex.getMessage());
+            shared = new ScoreStore();
+        }
+        return shared;
+    }
+
+    public synchronized long get(String key) {
+        Long v = values.get(key);
+        return v == null ? 0 : v;
+    }
+
+    // Raises key to value if that is higher; true if it was
+    public synchronized boolean max(String key, long value) {
+        Long old = values.get(key);
+        if (old != null && old >= value) return false;
+        values.put(key, value);
+        append(SET, key, value);
+        return true;
+    }
+
+    // Adds delta to key and returns the new value
+    public synchronized long add(String key, long delta) {
+        long v = get(key) + delta;
+        values.put(key, v);
+        append(ADD, key, delta);
+        return v;
+    }
+
+    // Writes out everything queued so far, then stops the writer and closes the files
+    public void close() {
+        Thread w;
+        synchronized (this) {
+            w = writer;
+            writer = null;
+        }
+        if (w == null) return;
+        pending.add(CLOSE);
+        try {
+            w.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        closeFiles();
+    }
+
+    private void append(byte op, String key, long value) {
+        if (writer != null) pending.add(record(op, key, value));
+    }
+
+    private static ByteBuffer record(byte op, String key, long value) {
+        byte[] k = key.getBytes(UTF8);
+        if (k.length > 0xFFFF) throw new IllegalArgumentException("Key too long: " + key);
+        ByteBuffer r = ByteBuffer.allocate(RECORD_FIXED + k.length);
+        r.putInt(0).putShort((short) k.length).put(op).putLong(value).put(k);
+        CRC32 crc = new CRC32();
+        crc.update(r.array(), 4, r.capacity() - 4);
+        r.putInt(0, (int) crc.getValue());
+        r.flip();
+        return r;
+    }
+
+    // Replays the journal into values and positions the channel after the last good record
+    private void load() throws IOException {
+        long size = channel.size();
+        if (size < HEADER) {
+            ByteBuffer h = ByteBuffer.allocate(HEADER);
+            h.putInt(MAGIC).putInt(VERSION).flip();
+            channel.truncate(0);
+            channel.write(h, 0);
+            channel.force(true);
+            channel.position(HEADER);
+            return;
+        }
+        ByteBuffer b = ByteBuffer.allocate((int) size);
+        while (b.hasRemaining() && channel.read(b, b.position()) >= 0) {
+            // Read until full
+        }
+        b.flip();
+        if (b.getInt(0) != MAGIC || b.getInt(4) != VERSION) {
+            throw new IOException(file + " is not a version " + VERSION + " score store");
+        }
+        b.position(HEADER);
+        int end = HEADER;
+        while (b.remaining() >= RECORD_FIXED) {
+            int start = b.position();
+            int sum = b.getInt();
+            int length = b.getShort() & 0xFFFF;
+            if (b.remaining() < 1 + 8 + length) break;
+            CRC32 crc = new CRC32();
+            crc.update(b.array(), start + 4, RECORD_FIXED - 4 + length);
+            if ((int) crc.getValue() != sum) break;
+            byte op = b.get();
+            long value = b.getLong();
+            String key = new String(b.array(), b.position(), length, UTF8);
+            b.position(b.position() + length);
+            if (op == SET) {
+                values.put(key, value);
+            } else if (op == ADD) {
+                Long old = values.get(key);
+                values.put(key, (old == null ? 0 : old) + value);
+            }
+            records++;
+            end = b.position();
+        }
+        // Drop a torn record left by a crash
+        if (end < size) channel.truncate(end);
+        channel.position(end);
+    }
+
+    private void writeLoop() {
+        List<ByteBuffer> batch = new ArrayList<ByteBuffer>();
+        boolean closing = false;
+        try {
+            maybeCompact();
+            while (!closing) {
+                ByteBuffer r = pending.take();
+                if (r == CLOSE) break;
+                batch.add(r);
+                // Group commit: everything arriving in the next BATCH_MILLIS shares one fsync
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(BATCH_MILLIS);
+                long wait;
+                while ((wait = deadline - System.nanoTime()) > 0) {
+                    r = pending.poll(wait, TimeUnit.NANOSECONDS);
+                    if (r == null) break;
+                    if (r == CLOSE) {
+                        closing = true;
+                        break;
+                    }
+                    batch.add(r);
+                }
+                ByteBuffer[] buffers = batch.toArray(new ByteBuffer[batch.size()]);
+                long left = 0;
+                for (ByteBuffer b : buffers) left += b.remaining();
+                while (left > 0) left -= channel.write(buffers);
+                channel.force(false);
+                records += buffers.length;
+                batch.clear();
+                maybeCompact();
+            }
+        } catch (InterruptedException ex) {
+            // Stop writing
+        } catch (IOException ex) {
+            System.err.println("Score store write failed, no longer saving: " + ex.getMessage());
+        }
+    }
+
+    private void maybeCompact() throws IOException {
+        Map<String, Long> copy;
+        synchronized (this) {
+            if (records < Math.max(COMPACT_MIN_RECORDS, COMPACT_FACTOR * values.size())) return;
+            // Changes queue their record while holding the lock, so with nothing queued the
+            // journal holds exactly the current values
+            if (!pending.isEmpty()) return;
+            copy = new HashMap<String, Long>(values);
+        }
+        File tmp = new File(file.getPath() + ".tmp");
+        RandomAccessFile out = new RandomAccessFile(tmp, "rw");
+        try {
+            FileChannel ch = out.getChannel();
+            ch.truncate(0);
+            ByteBuffer h = ByteBuffer.allocate(HEADER);
+            h.putInt(MAGIC).putInt(VERSION).flip();
+            ch.write(h);
+            for (Map.Entry<String, Long> e : copy.entrySet()) {
+                ByteBuffer r = record(SET, e.getKey(), e.getValue());
+                while (r.hasRemaining()) ch.write(r);
+            }
+            ch.force(true);
+        } finally {
+            out.close();
+        }
+        journal.close();
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        journal = new RandomAccessFile(file, "rw");
+        channel = journal.getChannel();
+        channel.position(channel.size());
+        records = copy.size();
+    }
+
+    private void closeFiles() {
+        try {
+            if (journal != null) journal.close();
+            if (lock != null) lock.release();
+            if (lockFile != null) lockFile.close();
+        } catch (IOException ex) {
+            // Nothing left to save
+        }
+    }
+}
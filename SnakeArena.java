@@ -0,0 +1,473 @@
+package com.fams;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+// Many snakes on one shared cols x rows grid, driven by bots or by players' inputs. The grid
+// holds, per cell, 0 when empty, FOOD, or the owning snake's id + 1, so head-to-body tests are
+// one array read. Snakes are struct-of-arrays like SnakeVecEnv, each body a fixed ring of
+// maxLength cells (a snake at maxLength keeps eating but stops growing).
+//
+// A tick runs in three phases over contiguous ranges of snakes, split across the calling
+// thread and (threads - 1) SnakeLockstep workers:
+//
+//   propose  (parallel) each snake picks a direction and its target cell from the grid as
+//            it was before the tick, then claims the target in a stamped claim array
+//   apply    (parallel) a target that is a wall, a body (tails still count, as in
+//            SnakeEngine) or claimed twice kills the snake and clears its body; otherwise it
+//            moves. Every cell is written by at most one snake, so no locking is needed
+//   commit   (serial, in id order) the free-cell index and food buckets are updated,
+//            then dead snakes respawn and food is topped up from the free cells
+//
+// Nothing depends on the order threads finish in, so a seed gives the same game on any
+// number of threads. Bots look for food in a 5x5 neighbourhood of BUCKET x BUCKET buckets,
+// a coarse spatial hash of food counts, and otherwise wander.
+public final class SnakeArena {
+
+    public static final int FOOD = -1;
+    public static final int RESPAWN_TICKS = 30;
+    static final int BUCKET_SHIFT = 4;
+    private static final int START_LENGTH = 3;
+    private static final int SEARCH_RING = 2;
+
+    // Outcome of the last tick per snake
+    public static final int MOVED = 0;
+    public static final int ATE = 1;
+    public static final int DIED = 2;
+
+    private final int snakes;
+    private final int cols;
+    private final int rows;
+    private final int cells;
+    private final int ringSize;
+    private final int maxLength;
+    private final int foodTarget;
+
+    private final int[] grid;
+    private final AtomicIntegerArray claims;
+    private final SnakeFreeSet freeCells;
+    private final int bucketCols;
+    private final int[] bucketFood;
+    private int foodCount;
+
+    private final int[] ring;
+    private final int[] tail;
+    private final int[] length;
+    private final int[] direction;
+    private final int[] score;
+    private final int[] target;
+    private final int[] outcome;
+    private final int[] freed;
+    private final int[] goal;
+    private final int[] respawn;
+    private final boolean[] alive;
+    private final boolean[] player;
+    private final int[] input;
+
+    private long seed;
+    private long rng;
+    private int ticks;
+    private int stamp;
+
+    private static final int PROPOSE = 0;
+    private static final int APPLY = 1;
+    private final SnakeLockstep pool;
+    private int phase;
+
+    public SnakeArena(int snakes, int cols, int rows, int maxLength, int food, int threads) {
+        this.snakes = snakes;
+        this.cols = cols;
+        this.rows = rows;
+        cells = cols * rows;
+        this.maxLength = Math.max(START_LENGTH + 1, maxLength);
+        ringSize = Integer.highestOneBit(this.maxLength - 1) << 1;
+        foodTarget = food;
+
+        grid = new int[cells];
+        claims = new AtomicIntegerArray(cells);
+        freeCells = cells <= SnakeEngine.DENSE_FREE_CELLS ? new SnakeFreeCells(cells) : new SnakeFreeBlocks(cells);
+        bucketCols = (cols + (1 << BUCKET_SHIFT) - 1) >> BUCKET_SHIFT;
+        bucketFood = new int[bucketCols * ((rows + (1 << BUCKET_SHIFT) - 1) >> BUCKET_SHIFT)];
+
+        ring = new int[snakes * ringSize];
+        tail = new int[snakes];
+        length = new int[snakes];
+        direction = new int[snakes];
+        score = new int[snakes];
+        target = new int[snakes];
+        outcome = new int[snakes];
+        freed = new int[snakes];
+        goal = new int[snakes];
+        respawn = new int[snakes];
+        alive = new boolean[snakes];
+        player = new boolean[snakes];
+        input = new int[snakes];
+
+        pool = new SnakeLockstep(snakes, threads, "snake-arena", new SnakeLockstep.Range() {
+            public void run(int from, int to) {
+                runRange(phase, from, to);
+            }
+        });
+        reset(0);
+    }
+
+    // Empties the grid and spawns every snake and the food anew
+    public void reset(long seed) {
+        this.seed = seed;
+        rng = seed;
+        ticks = 0;
+        java.util.Arrays.fill(grid, 0);
+        java.util.Arrays.fill(bucketFood, 0);
+        foodCount = 0;
+        freeCells.fill();
+        for (int i = 0; i < snakes; i++) {
+            length[i] = 0;
+            alive[i] = false;
+            score[i] = 0;
+            respawn[i] = 0;
+            input[i] = SnakeEngine.RIGHT;
+            spawn(i);
+        }
+        topUpFood();
+    }
+
+    // Advances every snake by one tick
+    public void step() {
+        ticks++;
+        if (++stamp == 1 << 30) {
+            for (int c = 0; c < cells; c++) claims.set(c, 0);
+            stamp = 1;
+        }
+        runPhase(PROPOSE);
+        runPhase(APPLY);
+        commit();
+    }
+
+    private void runPhase(int p) {
+        phase = p;
+        pool.run();
+    }
+
+    private void runRange(int p, int from, int to) {
+        if (p == PROPOSE) {
+            for (int i = from; i < to; i++) if (alive[i]) propose(i);
+        } else {
+            for (int i = from; i < to; i++) if (alive[i]) apply(i);
+        }
+    }
+
+    private void propose(int i) {
+        int head = head(i);
+        int d = player[i] ? input[i] : steer(i, head);
+        if (d != (direction[i] + 2 & 3)) direction[i] = d;
+        int n = neighbour(head, direction[i]);
+        if (n < 0 || grid[n] > 0) {
+            target[i] = -1;
+            return;
+        }
+        target[i] = n;
+        // Claim: stamp << 1 for one claimant this tick, | 1 once there is a second
+        while (true) {
+            int v = claims.get(n);
+            int next = v >>> 1 == stamp ? stamp << 1 | 1 : stamp << 1;
+            if (v == next || claims.compareAndSet(n, v, next)) break;
+        }
+    }
+
+    private void apply(int i) {
+        int n = target[i];
+        if (n < 0 || (claims.get(n) & 1) != 0) {
+            int base = i * ringSize, mask = ringSize - 1;
+            for (int k = 0; k < length[i]; k++) grid[ring[base + ((tail[i] + k) & mask)]] = 0;
+            outcome[i] = DIED;
+            return;
+        }
+        boolean ate = grid[n] == FOOD;
+        grid[n] = i + 1;
+        int mask = ringSize - 1;
+        // At a full ring the head goes into the tail's slot, so the tail is read first
+        int t = ring[i * ringSize + tail[i]];
+        ring[i * ringSize + ((tail[i] + length[i]) & mask)] = n;
+        if (ate && length[i] < maxLength) {
+            length[i]++;
+            freed[i] = -1;
+        } else {
+            tail[i] = (tail[i] + 1) & mask;
+            grid[t] = 0;
+            freed[i] = t;
+        }
+        outcome[i] = ate ? ATE : MOVED;
+    }
+
+    // Frees every dead body and vacated tail before any snake respawns, so a respawn cannot
+    // take a cell that is empty on the grid but not yet back in the free set
+    private void commit() {
+        for (int i = 0; i < snakes; i++) {
+            if (!alive[i]) continue;
+            if (outcome[i] == DIED) {
+                int base = i * ringSize, mask = ringSize - 1;
+                for (int k = 0; k < length[i]; k++) freeCells.add(ring[base + ((tail[i] + k) & mask)]);
+                length[i] = 0;
+                alive[i] = false;
+                respawn[i] = RESPAWN_TICKS + 1;
+                continue;
+            }
+            int n = target[i];
+            if (outcome[i] == ATE) {
+                score[i] += SnakeEngine.POINTS_PER_FOOD;
+                bucketFood[bucket(n)]--;
+                foodCount--;
+            } else {
+                freeCells.remove(n);
+            }
+            if (freed[i] >= 0) freeCells.add(freed[i]);
+        }
+        for (int i = 0; i < snakes; i++) if (!alive[i] && --respawn[i] <= 0) spawn(i);
+        topUpFood();
+    }
+
+    // Places food on random free cells until there are foodTarget pieces (or no free cells)
+    private void topUpFood() {
+        while (foodCount < foodTarget && freeCells.size() > 0) {
+            int c = freeCells.get(nextInt(freeCells.size()));
+            freeCells.remove(c);
+            grid[c] = FOOD;
+            bucketFood[bucket(c)]++;
+            foodCount++;
+        }
+    }
+
+    // START_LENGTH cells heading right from a random free cell; retried next tick if the
+    // cells picked are not free
+    private void spawn(int i) {
+        if (freeCells.size() == 0) return;
+        int c = freeCells.get(nextInt(freeCells.size()));
+        if (c % cols > cols - START_LENGTH) return;
+        for (int k = 0; k < START_LENGTH; k++) if (!freeCells.isFree(c + k)) return;
+        int base = i * ringSize;
+        for (int k = 0; k < START_LENGTH; k++) {
+            ring[base + k] = c + k;
+            grid[c + k] = i + 1;
+            freeCells.remove(c + k);
+        }
+        tail[i] = 0;
+        length[i] = START_LENGTH;
+        direction[i] = SnakeEngine.RIGHT;
+        input[i] = SnakeEngine.RIGHT;
+        goal[i] = -1;
+        alive[i] = true;
+    }
+
+    // Bot: toward its food goal, avoiding cells that are taken or boxed in; wanders without one
+    private int steer(int i, int head) {
+        int g = goal[i];
+        if (g < 0 || grid[g] != FOOD) goal[i] = g = findFood(head);
+        long r = SnakeEngine.mix(seed + i * 0x632BE59BD9B4E019L + ticks * 0x9E3779B97F4A7C15L);
+        int d = direction[i];
+        int best = d, bestScore = Integer.MIN_VALUE;
+        for (int k = 0; k < 3; k++) {
+            int dir = (d + (k == 0 ? 0 : k == 1 ? 1 : 3)) & 3;
+            int n = neighbour(head, dir);
+            if (n < 0 || grid[n] > 0) continue;
+            int s = 4 * exits(n);
+            if (g >= 0) s -= 8 * (Math.abs(n % cols - g % cols) + Math.abs(n / cols - g / cols));
+            else s -= (int) (r >>> 8 * k & 7);
+            if (s > bestScore) {
+                best = dir;
+                bestScore = s;
+            }
+        }
+        return best;
+    }
+
+    // Open neighbours of a cell
+    private int exits(int cell) {
+        int n = 0;
+        for (int d = 0; d < 4; d++) {
+            int c = neighbour(cell, d);
+            if (c >= 0 && grid[c] <= 0) n++;
+        }
+        return n;
+    }
+
+    // Nearest food in the closest buckets around head that have any, or -1
+    private int findFood(int head) {
+        int bx = head % cols >> BUCKET_SHIFT, by = head / cols >> BUCKET_SHIFT;
+        int bucketRows = bucketFood.length / bucketCols;
+        for (int ring = 0; ring <= SEARCH_RING; ring++) {
+            int best = -1, bestDistance = Integer.MAX_VALUE;
+            for (int y = by - ring; y <= by + ring; y++) {
+                for (int x = bx - ring; x <= bx + ring; x++) {
+                    if (Math.max(Math.abs(x - bx), Math.abs(y - by)) != ring) continue;
+                    if (x < 0 || y < 0 || x >= bucketCols || y >= bucketRows || bucketFood[y * bucketCols + x] == 0) continue;
+                    int x0 = x << BUCKET_SHIFT, y0 = y << BUCKET_SHIFT;
+                    int x1 = Math.min(cols, x0 + (1 << BUCKET_SHIFT)), y1 = Math.min(rows, y0 + (1 << BUCKET_SHIFT));
+                    for (int cy = y0; cy < y1; cy++) {
+                        for (int cx = x0; cx < x1; cx++) {
+                            if (grid[cy * cols + cx] != FOOD) continue;
+                            int distance = Math.abs(cx - head % cols) + Math.abs(cy - head / cols);
+                            if (distance < bestDistance) {
+                                best = cy * cols + cx;
+                                bestDistance = distance;
+                            }
+                        }
+                    }
+                }
+            }
+            if (best >= 0) return best;
+        }
+        return -1;
+    }
+
+    private int bucket(int cell) {
+        return (cell / cols >> BUCKET_SHIFT) * bucketCols + (cell % cols >> BUCKET_SHIFT);
+    }
+
+    private int neighbour(int cell, int dir) {
+        int x = cell % cols + SnakeEngine.DX[dir];
+        int y = cell / cols + SnakeEngine.DY[dir];
+        if (x < 0 || x >= cols || y < 0 || y >= rows) return -1;
+        return y * cols + x;
+    }
+
+    private int nextInt(int bound) {
+        rng += 0x9E3779B97F4A7C15L;
+        return (int) (((SnakeEngine.mix(rng) >>> 33) * bound) >>> 31);
+    }
+
+    // A player's snake follows setInput() instead of its bot
+    public void setPlayer(int snake, boolean isPlayer) {
+        player[snake] = isPlayer;
+    }
+
+    public void setInput(int snake, int dir) {
+        input[snake] = dir & 3;
+    }
+
+    public int size() {
+        return snakes;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getTicks() {
+        return ticks;
+    }
+
+    public int getFoodCount() {
+        return foodCount;
+    }
+
+    // 0 for an empty cell, FOOD, or the id + 1 of the snake covering it
+    public int cell(int cell) {
+        return grid[cell];
+    }
+
+    public boolean isAlive(int snake) {
+        return alive[snake];
+    }
+
+    // Outcome of the snake's last tick: MOVED, ATE or DIED (meaningless while it is dead)
+    public int outcome(int snake) {
+        return outcome[snake];
+    }
+
+    public int head(int snake) {
+        return ring[snake * ringSize + ((tail[snake] + length[snake] - 1) & (ringSize - 1))];
+    }
+
+    public int length(int snake) {
+        return length[snake];
+    }
+
+    public int direction(int snake) {
+        return direction[snake];
+    }
+
+    public int score(int snake) {
+        return score[snake];
+    }
+
+    // Order-independent digest of the grid, to compare runs across thread counts
+    public long checksum() {
+        long h = 0;
+        for (int c = 0; c < cells; c++) if (grid[c] != 0) h += SnakeEngine.mix(c * 0x9E3779B97F4A7C15L + grid[c]);
+        return h;
+    }
+
+    // Null if the grid, bodies, food count and buckets and the free set agree, otherwise
+    // the first disagreement found
+    public String check() {
+        int bodies = 0;
+        for (int i = 0; i < snakes; i++) {
+            if (!alive[i]) continue;
+            int base = i * ringSize, mask = ringSize - 1;
+            for (int k = 0; k < length[i]; k++) {
+                int c = ring[base + ((tail[i] + k) & mask)];
+                if (grid[c] != i + 1) return "snake " + i + " body cell " + c + " holds " + grid[c];
+            }
+            bodies += length[i];
+        }
+        int[] food = new int[bucketFood.length];
+        int owned = 0, empty = 0, foods = 0;
+        for (int c = 0; c < cells; c++) {
+            if (grid[c] == 0) {
+                empty++;
+                if (!freeCells.isFree(c)) return "empty cell " + c + " not in the free set";
+                continue;
+            }
+            if (freeCells.isFree(c)) return "cell " + c + " holding " + grid[c] + " in the free set";
+            if (grid[c] == FOOD) {
+                foods++;
+                food[bucket(c)]++;
+            } else if (!alive[grid[c] - 1]) {
+                return "cell " + c + " held by dead snake " + (grid[c] - 1);
+            } else {
+                owned++;
+            }
+        }
+        if (owned != bodies) return owned + " body cells on the grid, " + bodies + " in the rings";
+        if (foods != foodCount) return foods + " food on the grid, foodCount " + foodCount;
+        if (empty != freeCells.size()) return empty + " empty cells, free set holds " + freeCells.size();
+        for (int b = 0; b < food.length; b++) {
+            if (food[b] != bucketFood[b]) return "bucket " + b + " holds " + food[b] + " food, counted " + bucketFood[b];
+        }
+        return null;
+    }
+
+    public void close() {
+        pool.close();
+    }
+
+    // Throughput check: java com.fams.SnakeArena [snakes] [threads] [ticks] [cols] [rows]
+    public static void main(String[] args) {
+        int snakes = args.length > 0 ? Integer.parseInt(args[0]) : 4096;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int steps = args.length > 2 ? Integer.parseInt(args[2]) : 2000;
+        int cols = args.length > 3 ? Integer.parseInt(args[3]) : 1024;
+        int rows = args.length > 4 ? Integer.parseInt(args[4]) : 1024;
+        SnakeArena arena = new SnakeArena(snakes, cols, rows, 256, snakes, threads);
+        arena.reset(1);
+        long deaths = 0, food = 0, moves = 0;
+        long start = System.nanoTime();
+        for (int s = 0; s < steps; s++) {
+            arena.step();
+            for (int i = 0; i < snakes; i++) {
+                if (!arena.isAlive(i) && arena.respawn[i] == RESPAWN_TICKS) deaths++;
+                else if (arena.isAlive(i) && arena.outcome(i) == ATE) food++;
+                else if (arena.isAlive(i)) moves++;
+            }
+        }
+        long nanos = System.nanoTime() - start;
+        arena.close();
+        String problem = arena.check();
+        if (problem != null) System.out.println("inconsistent: " + problem);
+        System.out.println(String.format("%d snakes x %d ticks on %d threads: %,d snake-ticks/sec  (%,d deaths, %,d food)  checksum %016x",
+                snakes, steps, threads, (moves + food) * 1000000000L / nanos, deaths, food, arena.checksum()));
+    }
+}
@@ -0,0 +1,151 @@
+package com.fams;
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+
+// Arena mode: one or two local players among bot snakes on a shared SnakeArena grid. The view
+// follows player 1's head. -Dsnake.arena.snakes (default 300), -Dsnake.arena.board (default
+// 256x256), -Dsnake.arena.players (1 or 2) and -Dsnake.arena.threads set up the arena.
+public class SnakeArenaGame extends JPanel implements ActionListener {
+    private static final int WIDTH = 800;
+    private static final int HEIGHT = 600;
+    private static final int UNIT = 10;
+    private static final int DELAY = 100;
+    private static final int MAX_LENGTH = 1024;
+
+    private final SnakeArena arena;
+    private final int players;
+    private final Color[] colors;
+    private final javax.swing.Timer timer = new javax.swing.Timer(DELAY, this);
+    private int camX, camY;
+    private long tickNanos;
+
+    public SnakeArenaGame(int snakes, int cols, int rows, int players, int threads) {
+        this.players = players;
+        arena = new SnakeArena(snakes, cols, rows, MAX_LENGTH, snakes, threads);
+        for (int p = 0; p < players; p++) arena.setPlayer(p, true);
+        arena.reset(System.nanoTime());
+        colors = new Color[snakes];
+        for (int i = 0; i < snakes; i++) {
+            colors[i] = i < players ? (i == 0 ? Color.WHITE : Color.CYAN) : Color.getHSBColor(i * 0.618034f % 1, 0.6f, 0.9f);
+        }
+
+        setPreferredSize(new Dimension(WIDTH, HEIGHT));
+        setBackground(Color.BLACK);
+        setFocusable(true);
+        addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                int key = e.getKeyCode();
+                if (key == KeyEvent.VK_R) {
+                    arena.reset(System.nanoTime());
+                } else if (key == KeyEvent.VK_LEFT) {
+                    arena.setInput(0, SnakeEngine.LEFT);
+                } else if (key == KeyEvent.VK_RIGHT) {
+                    arena.setInput(0, SnakeEngine.RIGHT);
+                } else if (key == KeyEvent.VK_UP) {
+                    arena.setInput(0, SnakeEngine.UP);
+                } else if (key == KeyEvent.VK_DOWN) {
+                    arena.setInput(0, SnakeEngine.DOWN);
+                } else if (SnakeArenaGame.this.players > 1) {
+                    if (key == KeyEvent.VK_A) arena.setInput(1, SnakeEngine.LEFT);
+                    else if (key == KeyEvent.VK_D) arena.setInput(1, SnakeEngine.RIGHT);
+                    else if (key == KeyEvent.VK_W) arena.setInput(1, SnakeEngine.UP);
+                    else if (key == KeyEvent.VK_S) arena.setInput(1, SnakeEngine.DOWN);
+                }
+            }
+        });
+        timer.start();
+    }
+
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        long start = System.nanoTime();
+        arena.step();
+        tickNanos = System.nanoTime() - start;
+        if (arena.isAlive(0)) {
+            int head = arena.head(0);
+            camX = clamp(head % arena.getCols() * UNIT + UNIT / 2 - WIDTH / 2, arena.getCols() * UNIT - WIDTH);
+            camY = clamp(head / arena.getCols() * UNIT + UNIT / 2 - HEIGHT / 2, arena.getRows() * UNIT - HEIGHT);
+        }
+        repaint();
+    }
+
+    private static int clamp(int v, int max) {
+        return Math.max(0, Math.min(v, max));
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        int cols = arena.getCols(), rows = arena.getRows();
+        g.setColor(new Color(60,60,60));
+        g.drawRect(-camX, -camY, cols * UNIT - 1, rows * UNIT - 1);
+
+        int c0 = camX / UNIT, c1 = Math.min(cols - 1, (camX + WIDTH - 1) / UNIT);
+        int r0 = camY / UNIT, r1 = Math.min(rows - 1, (camY + HEIGHT - 1) / UNIT);
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                int v = arena.cell(r * cols + c);
+                if (v == 0) continue;
+                if (v == SnakeArena.FOOD) {
+                    g.setColor(Color.RED);
+                    g.fillOval(c*UNIT - camX + 1, r*UNIT - camY + 1, UNIT-2, UNIT-2);
+                } else {
+                    g.setColor(colors[v - 1]);
+                    g.fillRect(c*UNIT - camX, r*UNIT - camY, UNIT, UNIT);
+                }
+            }
+        }
+
+        int alive = 0;
+        for (int i = 0; i < arena.size(); i++) if (arena.isAlive(i)) alive++;
+        g.setColor(Color.WHITE);
+        g.setFont(new Font("Arial", Font.BOLD, 20));
+        for (int p = 0; p < players; p++) {
+            g.setColor(colors[p]);
+            g.drawString("P" + (p + 1) + "  Score: " + arena.score(p) + (arena.isAlive(p) ? "  Length: " + arena.length(p) : "  Respawning"),
+                    20, 30 + 26 * p);
+        }
+        g.setColor(Color.WHITE);
+        g.setFont(new Font("Arial", Font.PLAIN, 16));
+        g.drawString(alive + "/" + arena.size() + " snakes   " + arena.getFoodCount() + " food   tick "
+                + String.format("%.2f", tickNanos / 1e6) + " ms", 20, HEIGHT - 30);
+        g.drawString("Arrows" + (players > 1 ? " / WASD" : "") + ": Move | R: Restart", 20, HEIGHT - 10);
+    }
+
+    private static int parse(String s, int fallback) {
+        try {
+            return Integer.parseInt(s.trim());
+        } catch (NumberFormatException ex) {
+            System.err.println("Ignoring snake.arena.board, expected COLSxROWS");
+            return fallback;
+        }
+    }
+
+    public static void main(String[] args) {
+        final int snakes = Math.max(2, Integer.getInteger("snake.arena.snakes", 300));
+        final int players = Math.max(1, Math.min(2, Integer.getInteger("snake.arena.players", 1)));
+        final int threads = Integer.getInteger("snake.arena.threads", Runtime.getRuntime().availableProcessors());
+        String spec = System.getProperty("snake.arena.board", "256x256");
+        int x = Math.max(0, spec.indexOf('x'));
+        final int cols = Math.max(WIDTH / UNIT, parse(spec.substring(0, x), 256));
+        final int rows = Math.max(HEIGHT / UNIT, parse(spec.substring(x + 1), 256));
+        SwingUtilities.invokeLater(new Runnable() {
+            public void run() {
+                JFrame frame = new JFrame("Snake Arena - " + snakes + " snakes - Java 1.7");
+                frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+                SnakeArenaGame game = new SnakeArenaGame(snakes, cols, rows, players, threads);
+                frame.add(game);
+                frame.pack();
+                frame.setLocationRelativeTo(null);
+                frame.setResizable(false);
+                frame.setVisible(true);
+                game.requestFocusInWindow();
+            }
+        });
+    }
+}
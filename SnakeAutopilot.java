@@ -0,0 +1,268 @@
+package com.fams;
+
+// Picks the next direction for a SnakeEngine, steering along a fixed Hamiltonian cycle over
+// the grid. While the body lies in cycle order (tail to head, less than one lap) the snake
+// can always follow the cycle, and any step that stays inside the empty stretch between head
+// and tail keeps it that way, so it never traps itself: it takes the first step of the
+// shortest path to the food when that step is such a shortcut, otherwise the furthest
+// shortcut that does not pass the food, otherwise the cycle successor.
+//
+// This is the cycle first and the food path second, not the other way round: a food path
+// whose tail check passes can still leave the body in an order the cycle cannot follow, so
+// falling back to the cycle only once no safe path is left does not save the snake, while
+// shortcuts taken from the cycle keep it safe until the board is full.
+//
+// Out of order (autopilot switched on mid-game, or a grid without a cycle) it takes the
+// shortest path to the food only if it could still reach its tail after eating, else the
+// safe step that leaves the longest way back to the tail, else it chases its tail. A board
+// with an odd number of both columns and rows has no Hamiltonian cycle, so there only this
+// part runs, and the snake can lose or circle after its tail without reaching the food.
+//
+// Searches are breadth-first and time-aware: body segment i (0 = tail) is gone after i + 1
+// moves, so a cell it covers can be entered from move i + 2 on. Every buffer is allocated
+// once per grid and "cleared" by bumping a stamp, so next() allocates nothing.
+public final class SnakeAutopilot {
+
+    private static final int SLACK = 3;
+
+    private final SnakeEngine engine;
+    private final int cols;
+    private final int rows;
+
+    // Successor and position of each cell on the Hamiltonian cycle; null when cols and rows
+    // are both odd and no cycle exists
+    private final int[] cycle;
+    private final int[] position;
+
+    // Search state, valid where seen[cell] == visit
+    private final int[] seen;
+    private final int[] dist;
+    private final int[] parent;
+    private final int[] queue;
+    private int visit;
+
+    // Body index of each covered cell (real or simulated snake), valid where marked[cell] == mark
+    private final int[] marked;
+    private final int[] index;
+    private int mark;
+
+    private final int[] path;
+
+    public SnakeAutopilot(SnakeEngine engine) {
+        this.engine = engine;
+        cols = engine.getCols();
+        rows = engine.getRows();
+        int cells = cols * rows;
+        cycle = buildCycle(cols, rows);
+        position = cycle == null ? null : new int[cells];
+        if (cycle != null) for (int i = 0, c = 0; i < cells; i++, c = cycle[c]) position[c] = i;
+        seen = new int[cells];
+        dist = new int[cells];
+        parent = new int[cells];
+        queue = new int[cells];
+        marked = new int[cells];
+        index = new int[cells];
+        path = new int[cells];
+    }
+
+    // Direction for the next step; the current one if every move loses
+    public int next() {
+        SnakeBody body = engine.getBody();
+        int head = body.head();
+        int food = engine.getFood();
+
+        markBody(body);
+        if (cycle != null && ahead(head, body.tail()) > 1 && isInCycleOrder(body)) {
+            return followCycle(body, head, food);
+        }
+
+        if (food >= 0 && search(head, food) > 0) {
+            int k = tracePath(head, food);
+            if (tailAfter(body, k, true) > 0) return directionTo(head, path[0]);
+        }
+
+        int best = -1, bestDistance = 0;
+        for (int d = 0; d < 4; d++) {
+            int n = neighbour(head, d);
+            markBody(body);
+            if (n < 0 || !isOpen(n, 1)) continue;
+            path[0] = n;
+            int distance = tailAfter(body, 1, n == food);
+            if (distance > bestDistance) {
+                best = d;
+                bestDistance = distance;
+            }
+        }
+        if (best >= 0) return best;
+
+        markBody(body);
+        int tail = body.tail();
+        if (body.length() > 1 && search(head, tail) > 0) {
+            tracePath(head, tail);
+            return directionTo(head, path[0]);
+        }
+
+        for (int d = 0; d < 4; d++) {
+            int n = neighbour(head, d);
+            if (n >= 0 && isOpen(n, 1)) return d;
+        }
+        return engine.getDirection();
+    }
+
+    // Shortcuts keep a few cells of slack before the tail, and stop once the snake covers half
+    // the board so the cells they skipped are freed again before the tail runs out of room
+    private int followCycle(SnakeBody body, int head, int food) {
+        int gap = ahead(head, body.tail());
+        int limit = 1;
+        if (food >= 0 && 2 * body.length() < cycle.length) limit = Math.min(gap - SLACK, ahead(head, food));
+        if (food >= 0 && search(head, food) > 0) {
+            tracePath(head, food);
+            int step = ahead(head, path[0]);
+            if (step <= limit) return directionTo(head, path[0]);
+        }
+        int best = -1, bestStep = 0;
+        for (int d = 0; d < 4; d++) {
+            int n = neighbour(head, d);
+            if (n < 0) continue;
+            int step = ahead(head, n);
+            if (step <= limit && step > bestStep && isOpen(n, 1)) {
+                best = d;
+                bestStep = step;
+            }
+        }
+        return best >= 0 ? best : directionTo(head, cycle[head]);
+    }
+
+    // True if each segment is ahead of the previous one on the cycle, within one lap
+    private boolean isInCycleOrder(SnakeBody body) {
+        long lap = 0;
+        for (int i = 1; i < body.length(); i++) lap += ahead(body.get(i - 1), body.get(i));
+        return lap < cycle.length;
+    }
+
+    // Steps along the cycle from a to b
+    private int ahead(int a, int b) {
+        int d = position[b] - position[a];
+        return d < 0 ? d + cycle.length : d;
+    }
+
+    // Breadth-first search from start to target over cells open in time; target's distance or -1
+    private int search(int start, int target) {
+        int v = nextVisit();
+        seen[start] = v;
+        dist[start] = 0;
+        queue[0] = start;
+        int qh = 0, qt = 1;
+        while (qh < qt) {
+            int c = queue[qh++];
+            int d = dist[c] + 1;
+            for (int dir = 0; dir < 4; dir++) {
+                int n = neighbour(c, dir);
+                if (n < 0 || seen[n] == v || !isOpen(n, d)) continue;
+                seen[n] = v;
+                dist[n] = d;
+                parent[n] = c;
+                if (n == target) return d;
+                queue[qt++] = n;
+            }
+        }
+        return -1;
+    }
+
+    // Copies the searched path start -> target (excluding start) into path[]; returns its length
+    private int tracePath(int start, int target) {
+        int k = dist[target];
+        for (int i = k - 1, c = target; i >= 0; i--, c = parent[c]) path[i] = c;
+        return k;
+    }
+
+    // Simulates the snake moving along path[0..k); the new head's distance to its tail, or -1
+    private int tailAfter(SnakeBody body, int k, boolean eats) {
+        int length = body.length();
+        int total = length + k;
+        int newLength = length + (eats ? 1 : 0);
+        int drop = total - newLength;
+        if (newLength <= 1) return 1;
+
+        int m = nextMark();
+        for (int i = drop; i < total; i++) {
+            int c = i < length ? body.get(i) : path[i - length];
+            marked[c] = m;
+            index[c] = i - drop;
+        }
+        int tail = drop < length ? body.get(drop) : path[drop - length];
+        return search(path[k - 1], tail);
+    }
+
+    private void markBody(SnakeBody body) {
+        int m = nextMark();
+        for (int i = 0; i < body.length(); i++) {
+            int c = body.get(i);
+            marked[c] = m;
+            index[c] = i;
+        }
+    }
+
+    // A body cell can be entered on move d once its segment has moved on
+    private boolean isOpen(int cell, int d) {
+        return marked[cell] != mark || index[cell] <= d - 2;
+    }
+
+    private int neighbour(int cell, int dir) {
+        int x = cell % cols + SnakeEngine.DX[dir];
+        int y = cell / cols + SnakeEngine.DY[dir];
+        if (x < 0 || x >= cols || y < 0 || y >= rows) return -1;
+        return y * cols + x;
+    }
+
+    private int directionTo(int from, int to) {
+        int d = to - from;
+        if (d == 1) return SnakeEngine.RIGHT;
+        if (d == -1) return SnakeEngine.LEFT;
+        return d > 0 ? SnakeEngine.DOWN : SnakeEngine.UP;
+    }
+
+    private int nextVisit() {
+        if (++visit == 0) {
+            java.util.Arrays.fill(seen, 0);
+            visit = 1;
+        }
+        return visit;
+    }
+
+    private int nextMark() {
+        if (++mark == 0) {
+            java.util.Arrays.fill(marked, 0);
+            mark = 1;
+        }
+        return mark;
+    }
+
+    // Row 0 left to right, a serpentine over columns 1.. of the remaining rows, then back up
+    // column 0. Needs an even row count, so an odd one is built transposed.
+    private int[] buildCycle(int cols, int rows) {
+        int cells = cols * rows;
+        if (cells < 4 || (cols & 1) != 0 && (rows & 1) != 0 || cols < 2 || rows < 2) return null;
+        boolean transpose = (rows & 1) != 0;
+        int w = transpose ? rows : cols, h = transpose ? cols : rows;
+        int[] order = new int[cells];
+        int n = 0;
+        for (int x = 0; x < w; x++) order[n++] = x;
+        for (int y = 1; y < h; y++) {
+            if ((y & 1) == 1) for (int x = w - 1; x >= 1; x--) order[n++] = y * w + x;
+            else for (int x = 1; x < w; x++) order[n++] = y * w + x;
+        }
+        for (int y = h - 1; y >= 1; y--) order[n++] = y * w;
+
+        int[] next = new int[cells];
+        for (int i = 0; i < n; i++) {
+            int a = order[i], b = order[(i + 1) % n];
+            next[toCell(a, w, transpose)] = toCell(b, w, transpose);
+        }
+        return next;
+    }
+
+    private int toCell(int c, int w, boolean transpose) {
+        return transpose ? c % w * cols + c / w : c;
+    }
+}
@@ -0,0 +1,75 @@
+package com.fams;
+
+import java.util.BitSet;
+
+// Snake body as a ring buffer of packed cell indices (y * columns + x), tail to head,
+// plus an occupancy bitset over the grid so collision tests are a single bit lookup.
+// Advancing, growing and collision checks are O(1) and allocate nothing; the ring only
+// reallocates when the snake outgrows it. Several bodies may share one occupancy set.
+public final class SnakeBody {
+
+    private final BitSet occupied;
+    private int[] cells;
+    private int tail = 0;
+    private int length = 0;
+
+    public SnakeBody(int capacity, BitSet occupied) {
+        cells = new int[Math.max(4, Integer.highestOneBit(Math.max(1, capacity - 1)) << 1)];
+        this.occupied = occupied;
+    }
+
+    // Empties the body and frees its cells in the occupancy set
+    public void clear() {
+        for (int i = 0; i < length; i++) occupied.clear(get(i));
+        tail = 0;
+        length = 0;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    // Segment i, counting from the tail (0) to the head (length - 1)
+    public int get(int i) {
+        return cells[(tail + i) & (cells.length - 1)];
+    }
+
+    public int head() {
+        return get(length - 1);
+    }
+
+    public int tail() {
+        return cells[tail];
+    }
+
+    // True if any body sharing the occupancy set covers the cell
+    public boolean isOccupied(int cell) {
+        return occupied.get(cell);
+    }
+
+    public void addHead(int cell) {
+        if (length == cells.length) grow();
+        cells[(tail + length) & (cells.length - 1)] = cell;
+        length++;
+        occupied.set(cell);
+    }
+
+    // Drops the tail segment and returns its cell
+    public int removeTail() {
+        int cell = cells[tail];
+        tail = (tail + 1) & (cells.length - 1);
+        length--;
+        occupied.clear(cell);
+        return cell;
+    }
+
+    // Doubles the ring, unrolling it so the tail is at index 0
+    private void grow() {
+        int[] bigger = new int[cells.length * 2];
+        int first = cells.length - tail;
+        System.arraycopy(cells, tail, bigger, 0, first);
+        System.arraycopy(cells, 0, bigger, first, tail);
+        cells = bigger;
+        tail = 0;
+    }
+}
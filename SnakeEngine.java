@@ -0,0 +1,155 @@
+package com.fams;
+
+import java.util.BitSet;
+
+// Headless Snake rules for one game: body, food and score on a cols x rows grid, with no
+// Swing dependency. SnakeGame drives one from its timer or game loop; SnakeVecEnv runs the
+// same rules over thousands of games at once. Food comes from a splitmix64 stream seeded by
+// reset(seed), so a seed plus the sequence of directions reproduces a game exactly.
+public final class SnakeEngine {
+
+    // Directions, clockwise
+    public static final int RIGHT = 0;
+    public static final int DOWN = 1;
+    public static final int LEFT = 2;
+    public static final int UP = 3;
+    static final int[] DX = {1, 0, -1, 0};
+    static final int[] DY = {0, 1, 0, -1};
+
+    // Events returned by step()
+    public static final int ATE = 1;
+    public static final int DIED = 2;
+
+    public static final int POINTS_PER_FOOD = 10;
+
+    // Above this many cells the free set drops to SnakeFreeBlocks to stay at a few bits per cell
+    static final int DENSE_FREE_CELLS = 1 << 20;
+
+    private final int cols;
+    private final int rows;
+    private final SnakeBody body;
+    private final SnakeFreeSet freeCells;
+    private long rng;
+    private int food;
+    private int direction;
+    private int score;
+    private int ticks;
+    private int prevTail;
+    private boolean over;
+
+    public SnakeEngine(int cols, int rows) {
+        this.cols = cols;
+        this.rows = rows;
+        int cells = cols * rows;
+        body = new SnakeBody(Math.min(cells, 1024), new BitSet(cells));
+        freeCells = cells <= DENSE_FREE_CELLS ? new SnakeFreeCells(cells) : new SnakeFreeBlocks(cells);
+        reset(0);
+    }
+
+    // Three-segment snake heading right from a quarter of the way across, one food placed
+    public void reset(long seed) {
+        rng = seed;
+        body.clear();
+        freeCells.fill();
+        int start = startCell(cols, rows);
+        for (int i = 0; i < 3; i++) addHead(start + i);
+        direction = RIGHT;
+        score = 0;
+        ticks = 0;
+        prevTail = -1;
+        over = false;
+        food = nextFood();
+    }
+
+    static int startCell(int cols, int rows) {
+        return Math.max(0, rows / 2 - 2) * cols + cols / 4;
+    }
+
+    // Advances one tick in the given direction (a reversal keeps the current one)
+    public int step(int dir) {
+        if (over) return 0;
+        if (dir != (direction + 2 & 3)) direction = dir;
+        ticks++;
+        int head = body.head();
+        int x = head % cols + DX[direction];
+        int y = head / cols + DY[direction];
+        int next = y * cols + x;
+
+        // The tail cell still counts, it only moves after the check
+        if (x < 0 || x >= cols || y < 0 || y >= rows || body.isOccupied(next)) {
+            over = true;
+            prevTail = -1;
+            return DIED;
+        }
+
+        addHead(next);
+        if (next == food) {
+            score += POINTS_PER_FOOD;
+            prevTail = -1;
+            food = nextFood();
+            return ATE;
+        }
+        prevTail = body.removeTail();
+        freeCells.add(prevTail);
+        return 0;
+    }
+
+    private void addHead(int cell) {
+        body.addHead(cell);
+        freeCells.remove(cell);
+    }
+
+    // Uniform over the free cells in O(1); -1 once the snake fills the board
+    private int nextFood() {
+        int n = freeCells.size();
+        return n == 0 ? -1 : freeCells.get(nextInt(n));
+    }
+
+    private int nextInt(int bound) {
+        rng += 0x9E3779B97F4A7C15L;
+        return (int) (((mix(rng) >>> 33) * bound) >>> 31);
+    }
+
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public SnakeBody getBody() {
+        return body;
+    }
+
+    public int getFood() {
+        return food;
+    }
+
+    public int getDirection() {
+        return direction;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getTicks() {
+        return ticks;
+    }
+
+    // Cell the tail left on the last step, or -1 if the snake grew or died
+    public int getPrevTail() {
+        return prevTail;
+    }
+
+    public boolean isOver() {
+        return over;
+    }
+}
@@ -0,0 +1,72 @@
+package com.fams;
+
+// Compact SnakeFreeSet for giant grids: one bit per cell plus a Fenwick tree of free counts
+// per 64-cell block, about 1.5 bits per cell instead of SnakeFreeCells' 64. add and remove
+// are O(log blocks); get(i) finds the block holding the i-th free cell by walking the tree,
+// then the bit inside it.
+public final class SnakeFreeBlocks implements SnakeFreeSet {
+
+    private final int cells;
+    private final long[] bits;
+    private final int[] tree;
+    private int size;
+
+    public SnakeFreeBlocks(int cells) {
+        this.cells = cells;
+        bits = new long[(cells + 63) >>> 6];
+        tree = new int[bits.length + 1];
+        fill();
+    }
+
+    public void fill() {
+        java.util.Arrays.fill(bits, -1L);
+        if ((cells & 63) != 0) bits[bits.length - 1] = (1L << cells) - 1;
+        // Linear-time Fenwick build
+        for (int i = 1; i < tree.length; i++) tree[i] = Long.bitCount(bits[i - 1]);
+        for (int i = 1; i < tree.length; i++) {
+            int parent = i + (i & -i);
+            if (parent < tree.length) tree[parent] += tree[i];
+        }
+        size = cells;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isFree(int cell) {
+        return (bits[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    public void remove(int cell) {
+        if (!isFree(cell)) return;
+        bits[cell >>> 6] &= ~(1L << cell);
+        update(cell >>> 6, -1);
+        size--;
+    }
+
+    public void add(int cell) {
+        if (isFree(cell)) return;
+        bits[cell >>> 6] |= 1L << cell;
+        update(cell >>> 6, 1);
+        size++;
+    }
+
+    public int get(int i) {
+        int block = 0;
+        for (int step = Integer.highestOneBit(bits.length); step > 0; step >>>= 1) {
+            int next = block + step;
+            if (next < tree.length && tree[next] <= i) {
+                block = next;
+                i -= tree[next];
+            }
+        }
+        long word = bits[block];
+        for (; i > 0; i--) word &= word - 1;
+        return (block << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    private void update(int block, int delta) {
+        for (int i = block + 1; i < tree.length; i += i & -i) tree[i] += delta;
+    }
+}
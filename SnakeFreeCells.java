@@ -0,0 +1,54 @@
+package com.fams;
+
+// Set of free grid cells that supports O(1) add, remove and indexed access (for a uniform pick):
+// a dense array of the free cells plus, for every cell, its slot in that array (-1 if taken).
+// Removing swaps the last free cell into the vacated slot. Costs 8 bytes per cell; see
+// SnakeFreeBlocks for large grids.
+public final class SnakeFreeCells implements SnakeFreeSet {
+
+    private final int[] free;
+    private final int[] slot;
+    private int size;
+
+    public SnakeFreeCells(int cells) {
+        free = new int[cells];
+        slot = new int[cells];
+        fill();
+    }
+
+    // Marks every cell free
+    public void fill() {
+        for (int i = 0; i < free.length; i++) {
+            free[i] = i;
+            slot[i] = i;
+        }
+        size = free.length;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isFree(int cell) {
+        return slot[cell] >= 0;
+    }
+
+    public void remove(int cell) {
+        int s = slot[cell];
+        if (s < 0) return;
+        int last = free[--size];
+        free[s] = last;
+        slot[last] = s;
+        slot[cell] = -1;
+    }
+
+    public void add(int cell) {
+        if (slot[cell] >= 0) return;
+        free[size] = cell;
+        slot[cell] = size++;
+    }
+
+    public int get(int i) {
+        return free[i];
+    }
+}
@@ -0,0 +1,19 @@
+package com.fams;
+
+// Free cells of a Snake grid with indexed access, so food can be placed uniformly at random
+public interface SnakeFreeSet {
+
+    // Marks every cell free
+    void fill();
+
+    int size();
+
+    boolean isFree(int cell);
+
+    void remove(int cell);
+
+    void add(int cell);
+
+    // Free cell i of size(), in no particular order
+    int get(int i);
+}
@@ -8,23 +8,64 @@ import java.awt.event.KeyEvent;
 import javax.sound.sampled.*;
 import java.io.*;
 import java.util.*;
+import games.DirtyRegion;
+import games.GameLoop;
+import games.InputQueue;
+import games.ScoreStore;
+import games.StaticLayer;
 
-public class SnakeGame extends JPanel implements ActionListener {
+public class SnakeGame extends JPanel implements ActionListener, GameLoop.Game {
     private static final int WIDTH = 800;
     private static final int HEIGHT = 600;
     private static final int UNIT = 25;
+    // Largest board -Dsnake.board accepts, and largest the autopilot's buffers are sized for
+    private static final int MAX_CELLS = 1 << 26;
+    private static final int AUTOPILOT_MAX_CELLS = 1 << 20;
+    private static final String RECORD_FILE = System.getProperty("snake.record", "snake.rec");
 
     private static final String[] DIFFICULTIES = {"Easy", "Normal", "Fast"};
     private static final int[] INITIAL_DELAYS = {220, 160, 110};
     private static final int[] SPEED_STEPS = {2, 3, 5};
     private static final int[] MIN_DELAYS = {120, 90, 60};
+    // Loaded from and saved to the shared ScoreStore, per difficulty (and board size if not
+    // the default one)
     private static int[] highScores = {0, 0, 0};
-
-    private java.util.List<Point> snake;
+    private final ScoreStore store = ScoreStore.shared();
+    private final String highScoreKey;
+
+    // Rules live in the engine; cells are packed as y * cols + x. The board may be larger than
+    // the window, in which case the camera (pixel offset of the view) follows the head.
+    private final int cols;
+    private final int rows;
+    private final SnakeEngine engine;
+    private final SnakeBody snake;
+    private int camX, camY;
+    // Background and grid, cached one cell larger than the window and shifted by the camera's
+    // offset within a cell; ticks then repaint just the cells that changed
+    private final StaticLayer grid = new StaticLayer(new StaticLayer.Painter() {
+        public void paintLayer(Graphics2D g, int width, int height) {
+            paintGrid(g, width, height);
+        }
+    });
+    private final DirtyRegion dirty = new DirtyRegion();
+    private final Random random = new Random();
+    // Seed and inputs of every game, for SnakeReplay; null when not recording
+    private SnakeRecorder recorder;
+    // Drives dx/dy when autoplay is on (A); restarts a lost game after RESTART_TICKS
+    private SnakeAutopilot autopilot;
+    private static final int RESTART_TICKS = 20;
+    private boolean autoplay = false;
+    private int overTicks = 0;
     private int dx = UNIT;
     private int dy = 0;
-    private Point food;
+    // Keys go through the queue and are applied at the start of each tick, at most one turn
+    // per tick so that two quick turns cannot reverse the snake into itself
+    private final InputQueue input = new InputQueue("snake");
     private javax.swing.Timer timer;
+    // Fixed-timestep loop used instead of the timer with -Dgames.loop=fixed
+    private GameLoop loop;
+    private double alpha = 1;
+    private int prevTail = -1;
     private int score = 0;
     private boolean gameOver = false;
     private int delay = 150;
@@ -42,39 +83,64 @@ public class SnakeGame extends JPanel implements ActionListener {
         minDelay = MIN_DELAYS[difficulty];
         speedStep = SPEED_STEPS[difficulty];
         delay = INITIAL_DELAYS[difficulty];
+        int[] board = boardSize();
+        cols = board[0];
+        rows = board[1];
+        engine = new SnakeEngine(cols, rows);
+        snake = engine.getBody();
+        boolean defaultBoard = cols == WIDTH / UNIT && rows == HEIGHT / UNIT;
+        highScoreKey = "snake.high." + DIFFICULTIES[difficulty] + (defaultBoard ? "" : "." + cols + "x" + rows);
+        highScores[difficulty] = (int) store.get(highScoreKey);
 
         setPreferredSize(new Dimension(WIDTH, HEIGHT));
         setBackground(Color.BLACK);
         setFocusable(true);
 
-        snake = new ArrayList<Point>();
         initSounds();
+        initRecorder();
         startGame();
 
         addKeyListener(new KeyAdapter() {
             @Override
             public void keyPressed(KeyEvent e) {
-                int key = e.getKeyCode();
-                if (key == KeyEvent.VK_M) {
-                    soundEnabled = !soundEnabled;
-                    repaint();
-                } else if (key == KeyEvent.VK_R) {
-                    startGame();
-                } else if (!gameOver) {
-                    if (key == KeyEvent.VK_LEFT && dx != UNIT) {
-                        dx = -UNIT; dy = 0; play(moveClip);
-                    } else if (key == KeyEvent.VK_RIGHT && dx != -UNIT) {
-                        dx = UNIT; dy = 0; play(moveClip);
-                    } else if (key == KeyEvent.VK_UP && dy != UNIT) {
-                        dx = 0; dy = -UNIT; play(moveClip);
-                    } else if (key == KeyEvent.VK_DOWN && dy != -UNIT) {
-                        dx = 0; dy = UNIT; play(moveClip);
-                    }
-                }
+                input.offer(InputQueue.KEY_PRESSED | e.getKeyCode());
             }
         });
     }
 
+    // Board size in cells from -Dsnake.board=COLSxROWS (e.g. 4096x4096); defaults to the window
+    private static int[] boardSize() {
+        String spec = System.getProperty("snake.board", "");
+        int x = spec.indexOf('x');
+        try {
+            if (x > 0) {
+                int c = Integer.parseInt(spec.substring(0, x).trim());
+                int r = Integer.parseInt(spec.substring(x + 1).trim());
+                if (c >= 8 && r >= 8 && (long) c * r <= MAX_CELLS) return new int[] {c, r};
+            }
+        } catch (NumberFormatException ex) {
+            // Reported below
+        }
+        if (!spec.isEmpty()) System.err.println("Ignoring snake.board=" + spec + ", expected COLSxROWS");
+        return new int[] {WIDTH / UNIT, HEIGHT / UNIT};
+    }
+
+    // Every game is appended to RECORD_FILE for SnakeReplay; an empty name turns this off
+    private void initRecorder() {
+        if (RECORD_FILE.isEmpty()) return;
+        try {
+            final SnakeRecorder r = new SnakeRecorder(new File(RECORD_FILE));
+            recorder = r;
+            Runtime.getRuntime().addShutdownHook(new Thread() {
+                public void run() {
+                    r.close();
+                }
+            });
+        } catch (IOException ex) {
+            System.err.println("Not recording games: " + ex.getMessage());
+        }
+    }
+
     private static int chooseDifficulty() {
         Object[] options = {"Easy (Slow Snake)", "Normal", "Fast (Quick Snake)"};
         int choice = JOptionPane.showOptionDialog(
@@ -91,30 +157,29 @@ public class SnakeGame extends JPanel implements ActionListener {
     }
 
     private void startGame() {
-        snake.clear();
-        snake.add(new Point(UNIT * 8, UNIT * 10));
-        snake.add(new Point(UNIT * 9, UNIT * 10));
-        snake.add(new Point(UNIT * 10, UNIT * 10));
+        long seed = random.nextLong();
+        engine.reset(seed);
+        if (recorder != null) recorder.startGame(seed, cols, rows, difficulty);
         dx = UNIT; dy = 0;
-        newFood();
         score = 0;
         delay = INITIAL_DELAYS[difficulty];
         gameOver = false;
+        overTicks = 0;
+        prevTail = -1;
+        alpha = 1;
+        updateCamera();
+        repaint();
+        if (GameLoop.enabled()) {
+            if (loop == null) loop = new GameLoop(this, 1000.0 / delay);
+            loop.setTickRate(1000.0 / delay);
+            loop.start();
+            return;
+        }
         if (timer != null) timer.stop();
         timer = new javax.swing.Timer(delay, this);
         timer.start();
     }
 
-    private void newFood() {
-        Random rand = new Random();
-        int x, y;
-        do {
-            x = rand.nextInt(WIDTH / UNIT) * UNIT;
-            y = rand.nextInt(HEIGHT / UNIT) * UNIT;
-        } while (snake.contains(new Point(x, y)));
-        food = new Point(x, y);
-    }
-
     private void initSounds() {
         format = new AudioFormat(8000f, 16, 1, true, false);
         moveClip = createClip(generateTone(440, 0.05));
@@ -159,32 +224,50 @@ public class SnakeGame extends JPanel implements ActionListener {
         }
     }
 
+    private void paintGrid(Graphics2D g, int width, int height) {
+        g.setColor(getBackground());
+        g.fillRect(0, 0, width, height);
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setColor(new Color(40,40,40));
+        int right = Math.min(width, cols * UNIT), bottom = Math.min(height, rows * UNIT);
+        for (int x = 0; x <= right; x += UNIT) g.drawLine(x, 0, x, bottom);
+        for (int y = 0; y <= bottom; y += UNIT) g.drawLine(0, y, right, y);
+    }
+
     @Override
     protected void paintComponent(Graphics g) {
-        super.paintComponent(g);
+        if (getWidth() > WIDTH || getHeight() > HEIGHT) super.paintComponent(g);
+        grid.draw(this, g, -(camX % UNIT), -(camY % UNIT), WIDTH + UNIT, HEIGHT + UNIT);
         Graphics2D g2d = (Graphics2D)g;
         g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 
-        // Grid
-        g.setColor(new Color(40,40,40));
-        for (int i = 0; i <= WIDTH/UNIT; i++) g.drawLine(i*UNIT,0,i*UNIT,HEIGHT);
-        for (int i = 0; i <= HEIGHT/UNIT; i++) g.drawLine(0,i*UNIT,WIDTH,i*UNIT);
+        // Only cells inside the repainted area are drawn: columns c0..c1, rows r0..r1
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) clip = new Rectangle(0, 0, WIDTH, HEIGHT);
+        int c0 = Math.max(0, (camX + clip.x) / UNIT), c1 = Math.min(cols - 1, (camX + clip.x + clip.width - 1) / UNIT);
+        int r0 = Math.max(0, (camY + clip.y) / UNIT), r1 = Math.min(rows - 1, (camY + clip.y + clip.height - 1) / UNIT);
 
         if (!gameOver) {
             // Food
             g.setColor(Color.RED);
-            g.fillOval(food.x + 4, food.y + 4, UNIT-8, UNIT-8);
+            int food = engine.getFood();
+            if (food >= 0) g.fillOval(cellX(food) + 4, cellY(food) + 4, UNIT-8, UNIT-8);
 
-            // Snake body
+            // Snake body, found through the occupancy bits of the visible cells; with
+            // interpolation the tail slides out of the cell it left
             g.setColor(Color.GREEN);
-            for (int i = 0; i < snake.size()-1; i++) {
-                Point p = snake.get(i);
-                g.fillRect(p.x, p.y, UNIT, UNIT);
+            int head = snake.head();
+            if (prevTail >= 0) fillPart(g, prevTail, snake.tail(), 1 - alpha);
+            for (int r = r0; r <= r1; r++) {
+                for (int c = c0; c <= c1; c++) {
+                    int cell = r * cols + c;
+                    if (cell != head && snake.isOccupied(cell)) g.fillRect(c*UNIT - camX, r*UNIT - camY, UNIT, UNIT);
+                }
             }
-            // Snake head (brighter)
+            // Snake head (brighter), sliding into its new cell
             g.setColor(new Color(0, 255, 0));
-            Point head = snake.get(snake.size()-1);
-            g.fillRect(head.x, head.y, UNIT, UNIT);
+            if (alpha < 1) fillPart(g, head, snake.get(snake.length()-2), alpha);
+            else g.fillRect(cellX(head), cellY(head), UNIT, UNIT);
         }
 
         // Score & High Score
@@ -202,8 +285,8 @@ public class SnakeGame extends JPanel implements ActionListener {
         g.drawString(s, (WIDTH - fm.stringWidth(s))/2, 130);
 
         g.setFont(new Font("Arial", Font.PLAIN, 18));
-        g.drawString("Arrows: Move | M: Sound | R: Restart", 20, HEIGHT-30);
-        g.drawString("Sound: " + (soundEnabled?"ON":"OFF"), 20, HEIGHT-10);
+        g.drawString("Arrows: Move | A: Autopilot | M: Sound | R: Restart", 20, HEIGHT-30);
+        g.drawString("Sound: " + (soundEnabled?"ON":"OFF") + (autoplay ? " | Autopilot" : ""), 20, HEIGHT-10);
 
         // Game Over
         if (gameOver) {
@@ -234,36 +317,149 @@ public class SnakeGame extends JPanel implements ActionListener {
         }
     }
 
+    // Fills the fraction f of cell on the side that touches the adjacent cell next
+    private void fillPart(Graphics g, int cell, int next, double f) {
+        int x = cellX(cell), y = cellY(cell);
+        int size = (int) Math.round(f * UNIT);
+        if (size <= 0) return;
+        if (next % cols != cell % cols) {
+            g.fillRect(next % cols > cell % cols ? x + UNIT - size : x, y, size, UNIT);
+        } else {
+            g.fillRect(x, next / cols > cell / cols ? y + UNIT - size : y, UNIT, size);
+        }
+    }
+
+    // Screen position of a cell's top-left corner
+    private int cellX(int cell) {
+        return cell % cols * UNIT - camX;
+    }
+
+    private int cellY(int cell) {
+        return cell / cols * UNIT - camY;
+    }
+
+    private void markCell(int cell) {
+        if (cell >= 0) dirty.add(cellX(cell), cellY(cell), UNIT, UNIT);
+    }
+
+    // Paints what changed since the last frame: the cells at both ends of the snake, or
+    // everything if the camera moved
+    private void paintChanges() {
+        int oldX = camX, oldY = camY;
+        updateCamera();
+        if (camX != oldX || camY != oldY) {
+            dirty.addAll();
+        } else {
+            markCell(snake.head());
+            if (snake.length() > 1) markCell(snake.get(snake.length() - 2));
+            markCell(snake.tail());
+            markCell(prevTail);
+        }
+        dirty.paint(this);
+    }
+
+    // Centres the view on the (interpolated) head, clamped to the board edges
+    private void updateCamera() {
+        int head = snake.head();
+        double hx = head % cols, hy = head / cols;
+        if (alpha < 1 && snake.length() > 1) {
+            int neck = snake.get(snake.length() - 2);
+            hx = neck % cols + (hx - neck % cols) * alpha;
+            hy = neck / cols + (hy - neck / cols) * alpha;
+        }
+        camX = clamp((int) Math.round((hx + 0.5) * UNIT) - WIDTH / 2, cols * UNIT - WIDTH);
+        camY = clamp((int) Math.round((hy + 0.5) * UNIT) - HEIGHT / 2, rows * UNIT - HEIGHT);
+    }
+
+    private static int clamp(int v, int max) {
+        return Math.max(0, Math.min(v, max));
+    }
+
     @Override
     public void actionPerformed(ActionEvent e) {
-        if (gameOver) { repaint(); return; }
+        tick();
+    }
 
-        Point head = snake.get(snake.size()-1);
-        Point newHead = new Point(head.x + dx, head.y + dy);
+    public void render(double alpha) {
+        this.alpha = gameOver ? 1 : alpha;
+        if (gameOver) dirty.paint(this);
+        else paintChanges();
+    }
 
-        // Collision
-        if (newHead.x < 0 || newHead.x >= WIDTH || newHead.y < 0 || newHead.y >= HEIGHT
-            || snake.contains(newHead)) {
+    // Applies queued keys until one turns the snake; later ones wait for the next tick.
+    // Returns false if the game was restarted.
+    private boolean readInput() {
+        long now = System.nanoTime();
+        while (input.poll(now)) {
+            if (input.type() != InputQueue.KEY_PRESSED) continue;
+            int key = input.keyCode();
+            if (key == KeyEvent.VK_M) {
+                soundEnabled = !soundEnabled;
+                repaint();
+            } else if (key == KeyEvent.VK_R) {
+                startGame();
+                return false;
+            } else if (key == KeyEvent.VK_A) {
+                if (autopilot == null && cols * rows <= AUTOPILOT_MAX_CELLS) autopilot = new SnakeAutopilot(engine);
+                autoplay = autopilot != null && !autoplay;
+                repaint();
+            } else if (!gameOver) {
+                int ndx = key == KeyEvent.VK_LEFT ? -UNIT : key == KeyEvent.VK_RIGHT ? UNIT : 0;
+                int ndy = key == KeyEvent.VK_UP ? -UNIT : key == KeyEvent.VK_DOWN ? UNIT : 0;
+                // Not a direction, the current one, or straight back
+                if ((ndx == 0 && ndy == 0) || ndx * dx + ndy * dy != 0) continue;
+                dx = ndx;
+                dy = ndy;
+                play(moveClip);
+                return true;
+            }
+        }
+        return true;
+    }
+
+    public void tick() {
+        if (!readInput()) return;
+        if (gameOver) {
+            if (autoplay && ++overTicks >= RESTART_TICKS) startGame();
+            return;
+        }
+
+        if (autoplay) {
+            int d = autopilot.next();
+            dx = d == SnakeEngine.RIGHT ? UNIT : d == SnakeEngine.LEFT ? -UNIT : 0;
+            dy = d == SnakeEngine.DOWN ? UNIT : d == SnakeEngine.UP ? -UNIT : 0;
+        }
+
+        int dir = dx > 0 ? SnakeEngine.RIGHT : dx < 0 ? SnakeEngine.LEFT : dy > 0 ? SnakeEngine.DOWN : SnakeEngine.UP;
+        // The cell the tail was leaving is empty after this tick whatever happens
+        markCell(prevTail);
+        if (recorder != null) recorder.input(engine.getTicks(), dir);
+        int event = engine.step(dir);
+        prevTail = engine.getPrevTail();
+
+        if (event == SnakeEngine.DIED) {
             gameOver = true;
+            if (recorder != null) recorder.endGame(engine.getTicks(), score);
             if (score > highScores[difficulty]) {
                 highScores[difficulty] = score;
+                store.max(highScoreKey, score);
             }
             play(overClip);
+            dirty.addAll();
+            if (loop == null) dirty.paint(this);
             return;
         }
 
-        snake.add(newHead);
-
-        if (newHead.equals(food)) {
-            score += 10;
-            newFood();
+        if (event == SnakeEngine.ATE) {
+            score = engine.getScore();
+            markCell(engine.getFood());
+            dirty.add(0, 0, WIDTH, 140);
             delay = Math.max(minDelay, delay - speedStep);
-            timer.setDelay(delay);
+            if (loop != null) loop.setTickRate(1000.0 / delay);
+            else timer.setDelay(delay);
             play(eatClip);
-        } else {
-            snake.remove(0);
         }
-        repaint();
+        if (loop == null) paintChanges();
     }
 
     public static void main(String[] args) {
@@ -0,0 +1,85 @@
+package com.fams;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+// Runs one Range task over items [0, n) split into contiguous ranges: the calling thread does
+// the first and (threads - 1) daemon workers the others, and run() returns once all are done.
+// Workers park between runs and live until close(); the caller yields for a while before it
+// parks, since a run is usually short. Anything the caller writes before run() is visible to
+// the workers, and anything they write is visible to the caller after it returns.
+public final class SnakeLockstep {
+
+    public interface Range {
+        void run(int from, int to);
+    }
+
+    private final Range task;
+    private final Worker[] workers;
+    private final int firstTo;
+    private final AtomicInteger remaining = new AtomicInteger();
+    private volatile int epoch;
+    private volatile boolean closed;
+    private volatile Thread caller;
+
+    public SnakeLockstep(int n, int threads, String name, Range task) {
+        this.task = task;
+        threads = Math.max(1, Math.min(threads, n));
+        firstTo = (int) ((long) n / threads);
+        workers = new Worker[threads - 1];
+        for (int t = 1; t < threads; t++) {
+            workers[t - 1] = new Worker((int) ((long) n * t / threads), (int) ((long) n * (t + 1) / threads));
+            Thread th = new Thread(workers[t - 1], name + "-" + t);
+            th.setDaemon(true);
+            workers[t - 1].thread = th;
+            th.start();
+        }
+    }
+
+    public void run() {
+        if (workers.length == 0) {
+            task.run(0, firstTo);
+            return;
+        }
+        caller = Thread.currentThread();
+        remaining.set(workers.length);
+        epoch++;
+        for (Worker w : workers) LockSupport.unpark(w.thread);
+        task.run(0, firstTo);
+        int spins = 0;
+        while (remaining.get() != 0) {
+            if (++spins < 1000) Thread.yield();
+            else LockSupport.park(this);
+        }
+    }
+
+    public void close() {
+        closed = true;
+        for (Worker w : workers) LockSupport.unpark(w.thread);
+    }
+
+    private final class Worker implements Runnable {
+        final int from;
+        final int to;
+        Thread thread;
+
+        Worker(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        public void run() {
+            // Not epoch: the first run() may have bumped it before this thread got here
+            int seen = 0;
+            while (true) {
+                while (epoch == seen) {
+                    if (closed) return;
+                    LockSupport.park(this);
+                }
+                seen = epoch;
+                task.run(from, to);
+                if (remaining.decrementAndGet() == 0) LockSupport.unpark(caller);
+            }
+        }
+    }
+}
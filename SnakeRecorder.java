@@ -0,0 +1,142 @@
+package com.fams;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+// Appends Snake games to a file as their inputs only: the engine is deterministic, so a
+// game's seed plus the ticks at which the requested direction changed reproduce it exactly
+// (see SnakeReplay). After an 8-byte header (magic, version) the file is a stream of
+// unsigned LEB128 varints, each token being (tick delta << 3 | code):
+//
+//   code 0-3  TURN   direction requested from tick (previous token's tick + delta) on
+//   code 4    GAME   new game, then varints cols, rows, difficulty and the 8-byte seed
+//   code 5    END    game ended delta ticks after the previous token, then varint score
+//
+// A turn usually takes one or two bytes, so an hour of play is a few kilobytes. Tokens are
+// buffered and written at the end of every game and every FLUSH_TICKS ticks, so a crash
+// loses at most that much of the game in progress.
+public final class SnakeRecorder {
+
+    public static final int MAGIC = 0x534E4B52; // "SNKR"
+    public static final int VERSION = 1;
+    public static final int HEADER = 8;
+
+    static final int GAME = 4;
+    static final int END = 5;
+    private static final int FLUSH_TICKS = 1000;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final ByteBuffer buf = ByteBuffer.allocateDirect(1 << 16);
+    private boolean inGame;
+    private int lastTick;
+    private int lastDir;
+    private int ticks;
+    private int flushedTick;
+
+    // Appends to file, creating it if needed
+    public SnakeRecorder(File f) throws IOException {
+        file = new RandomAccessFile(f, "rw");
+        channel = file.getChannel();
+        try {
+            if (channel.size() < HEADER) {
+                ByteBuffer h = ByteBuffer.allocate(HEADER);
+                h.putInt(MAGIC).putInt(VERSION).flip();
+                channel.truncate(0);
+                channel.write(h, 0);
+            }
+            ByteBuffer h = ByteBuffer.allocate(HEADER);
+            channel.read(h, 0);
+            if (h.getInt(0) != MAGIC || h.getInt(4) != VERSION) {
+                throw new IOException("Not a version " + VERSION + " Snake record file: " + f);
+            }
+            channel.position(channel.size());
+        } catch (IOException ex) {
+            file.close();
+            throw ex;
+        }
+    }
+
+    // A new game from SnakeEngine.reset(seed); ends the previous one if it is still open
+    public synchronized void startGame(long seed, int cols, int rows, int difficulty) {
+        if (inGame) endGame(ticks, -1);
+        token(0, GAME);
+        varint(cols);
+        varint(rows);
+        varint(difficulty);
+        ensure(8);
+        buf.putLong(seed);
+        inGame = true;
+        lastTick = 0;
+        lastDir = SnakeEngine.RIGHT;
+        ticks = 0;
+        flushedTick = 0;
+    }
+
+    // Direction passed to SnakeEngine.step() at the given tick (engine ticks before the step);
+    // only changes are written
+    public synchronized void input(int tick, int dir) {
+        if (!inGame) return;
+        ticks = tick + 1;
+        if (dir != lastDir) {
+            token(tick - lastTick, dir);
+            lastTick = tick;
+            lastDir = dir;
+        }
+        if (tick - flushedTick >= FLUSH_TICKS) {
+            flush();
+            flushedTick = tick;
+        }
+    }
+
+    // Ends the game after the given number of ticks; a negative score marks it abandoned
+    public synchronized void endGame(int ticks, int score) {
+        if (!inGame) return;
+        token(Math.max(0, ticks - lastTick), END);
+        varint(score + 1);
+        inGame = false;
+        flush();
+    }
+
+    private void token(int delta, int code) {
+        varint((long) delta << 3 | code);
+    }
+
+    private void varint(long v) {
+        ensure(10);
+        while ((v & ~0x7FL) != 0) {
+            buf.put((byte) (v & 0x7F | 0x80));
+            v >>>= 7;
+        }
+        buf.put((byte) v);
+    }
+
+    private void ensure(int bytes) {
+        if (buf.remaining() < bytes) flush();
+    }
+
+    public synchronized void flush() {
+        buf.flip();
+        try {
+            while (buf.hasRemaining()) channel.write(buf);
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+        buf.clear();
+    }
+
+    // Ends an open game as abandoned after its last recorded tick
+    public synchronized void close() {
+        if (!channel.isOpen()) return;
+        endGame(ticks, -1);
+        flush();
+        try {
+            file.close();
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+}
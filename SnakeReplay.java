@@ -0,0 +1,345 @@
+package com.fams;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.*;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+// Reader and viewer for SnakeRecorder files. The file is mapped and indexed with one pass
+// over its tokens; a seek re-simulates the game headlessly in a SnakeEngine from its seed
+// (or from the current tick when seeking forward in the same game), which runs millions of
+// ticks per second, so even an hour-long game is a few milliseconds away. The view is only
+// painted once the target tick is reached. A single mapping limits a file to 2 GB.
+//
+//   java com.fams.SnakeReplay snake.rec [game [tick]]    viewer: Left/Right tick, Up/Down 100
+//                                                        ticks, Space play, G go to tick,
+//                                                        PgUp/PgDn game, Home/End
+//   java com.fams.SnakeReplay --scan snake.rec           re-simulates and checks every game
+public final class SnakeReplay {
+
+    private static final int H = SnakeRecorder.HEADER;
+
+    private final MappedByteBuffer tokens;
+    private final int end;
+    private int games;
+    private int[] offsets;
+    private long[] seeds;
+    private int[] cols;
+    private int[] rows;
+    private int[] difficulties;
+    private int[] ticks;
+    private int[] scores;
+
+    // Seek state: the engine is at some tick of game; the next turn applies at turnTick
+    private SnakeEngine engine;
+    private int game = -1;
+    private int pos;
+    private int dir;
+    private int turnTick;
+    private int turnDir;
+
+    public SnakeReplay(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel ch = raf.getChannel();
+            if (ch.size() > Integer.MAX_VALUE) throw new IOException("File larger than 2 GB: " + file);
+            tokens = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            if (tokens.capacity() < H || tokens.getInt(0) != SnakeRecorder.MAGIC
+                    || tokens.getInt(4) != SnakeRecorder.VERSION) {
+                throw new IOException("Not a version " + SnakeRecorder.VERSION + " Snake record: " + file);
+            }
+        } finally {
+            raf.close();
+        }
+        end = tokens.capacity();
+        buildGameTable();
+    }
+
+    // Offsets, headers, lengths and scores of all games; a game cut off by a crash ends at its
+    // last complete token, with a score of -1
+    private void buildGameTable() {
+        int capacity = 16;
+        offsets = new int[capacity];
+        seeds = new long[capacity];
+        cols = new int[capacity];
+        rows = new int[capacity];
+        difficulties = new int[capacity];
+        ticks = new int[capacity];
+        scores = new int[capacity];
+        int g = -1, tick = 0;
+        pos = H;
+        while (pos < end) {
+            long t = varint();
+            if (t < 0) break;
+            int code = (int) (t & 7);
+            tick += (int) (t >>> 3);
+            if (code == SnakeRecorder.GAME) {
+                long c = varint(), r = varint(), d = varint();
+                if (d < 0 || pos + 8 > end) break;
+                if (++g == capacity) grow(capacity *= 2);
+                cols[g] = (int) c;
+                rows[g] = (int) r;
+                difficulties[g] = (int) d;
+                seeds[g] = tokens.getLong(pos);
+                pos += 8;
+                offsets[g] = pos;
+                scores[g] = -1;
+                tick = 0;
+            } else if (g >= 0 && code == SnakeRecorder.END) {
+                long s = varint();
+                if (s < 0) break;
+                scores[g] = (int) s - 1;
+            } else if (g < 0 || code > SnakeRecorder.END) {
+                break;
+            }
+            if (g >= 0) ticks[g] = tick;
+        }
+        games = g + 1;
+    }
+
+    private void grow(int capacity) {
+        offsets = java.util.Arrays.copyOf(offsets, capacity);
+        seeds = java.util.Arrays.copyOf(seeds, capacity);
+        cols = java.util.Arrays.copyOf(cols, capacity);
+        rows = java.util.Arrays.copyOf(rows, capacity);
+        difficulties = java.util.Arrays.copyOf(difficulties, capacity);
+        ticks = java.util.Arrays.copyOf(ticks, capacity);
+        scores = java.util.Arrays.copyOf(scores, capacity);
+    }
+
+    // Next varint at pos, or -1 if the file ends inside it
+    private long varint() {
+        long v = 0;
+        for (int shift = 0; pos < end && shift < 64; shift += 7) {
+            int b = tokens.get(pos++);
+            v |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return v;
+        }
+        return -1;
+    }
+
+    public int getGameCount() {
+        return games;
+    }
+
+    public int getTicks(int game) {
+        return ticks[game];
+    }
+
+    // Final score, or -1 for a game that was abandoned or cut off
+    public int getScore(int game) {
+        return scores[game];
+    }
+
+    public int getDifficulty(int game) {
+        return difficulties[game];
+    }
+
+    // Re-simulates game up to the given tick (or its death) and returns the engine holding
+    // that state; it is reused by the next seek
+    public SnakeEngine seek(int g, int tick) {
+        tick = Math.max(0, Math.min(tick, ticks[g]));
+        if (g != game || tick < engine.getTicks()) {
+            if (engine == null || engine.getCols() != cols[g] || engine.getRows() != rows[g]) {
+                engine = new SnakeEngine(cols[g], rows[g]);
+            }
+            engine.reset(seeds[g]);
+            game = g;
+            pos = offsets[g];
+            dir = SnakeEngine.RIGHT;
+            turnTick = 0;
+            nextTurn();
+        }
+        while (engine.getTicks() < tick && !engine.isOver()) {
+            while (turnTick == engine.getTicks()) {
+                dir = turnDir;
+                nextTurn();
+            }
+            engine.step(dir);
+        }
+        return engine;
+    }
+
+    // Reads the next turn of the current game into turnTick and turnDir; none left puts
+    // turnTick out of reach
+    private void nextTurn() {
+        long t = pos < end ? varint() : -1;
+        if (t < 0 || (t & 7) > SnakeEngine.UP) {
+            turnTick = Integer.MAX_VALUE;
+            return;
+        }
+        turnTick += (int) (t >>> 3);
+        turnDir = (int) (t & 7);
+    }
+
+    // Replays every game to its end and checks the outcome against the recorded score
+    private void scan() {
+        long start = System.nanoTime();
+        long steps = 0;
+        int finished = 0, mismatches = 0, best = 0;
+        for (int g = 0; g < games; g++) {
+            SnakeEngine e = seek(g, ticks[g]);
+            steps += e.getTicks();
+            best = Math.max(best, e.getScore());
+            if (scores[g] < 0) continue;
+            finished++;
+            if (!e.isOver() || e.getTicks() != ticks[g] || e.getScore() != scores[g]) {
+                mismatches++;
+                System.out.println(String.format("game %d: recorded %d points at tick %d, replayed %d points at tick %d%s",
+                        g + 1, scores[g], ticks[g], e.getScore(), e.getTicks(), e.isOver() ? "" : " (alive)"));
+            }
+        }
+        long nanos = Math.max(1, System.nanoTime() - start);
+        System.out.println(String.format("%,d games  %,d finished  %,d mismatched  best %d  %,d bytes",
+                games, finished, mismatches, best, end));
+        System.out.println(String.format("%,d ticks in %.1f ms  (%,d ticks/sec)",
+                steps, nanos / 1e6, steps * 1000000000L / nanos));
+    }
+
+    // ================== VIEWER ==================
+    private static final class Viewer extends JPanel implements ActionListener {
+
+        private static final int WIDTH = 800;
+        private static final int HEIGHT = 600;
+        private static final int BAR = 80;
+        private static final int MIN_UNIT = 4;
+        private static final int MAX_UNIT = 25;
+        private static final int PLAY_DELAY = 100;
+
+        private final SnakeReplay replay;
+        private final javax.swing.Timer player = new javax.swing.Timer(PLAY_DELAY, this);
+        private SnakeEngine engine;
+        private int game;
+
+        Viewer(SnakeReplay replay, int game, int tick) {
+            this.replay = replay;
+            setPreferredSize(new Dimension(WIDTH, HEIGHT + BAR));
+            setBackground(Color.BLACK);
+            setFocusable(true);
+            goTo(Math.max(0, Math.min(game, replay.getGameCount() - 1)), tick);
+
+            addKeyListener(new KeyAdapter() {
+                public void keyPressed(KeyEvent e) {
+                    int key = e.getKeyCode();
+                    int g = Viewer.this.game, t = engine.getTicks();
+                    if (key == KeyEvent.VK_RIGHT) goTo(g, t + 1);
+                    else if (key == KeyEvent.VK_LEFT) goTo(g, t - 1);
+                    else if (key == KeyEvent.VK_UP) goTo(g, t + 100);
+                    else if (key == KeyEvent.VK_DOWN) goTo(g, t - 100);
+                    else if (key == KeyEvent.VK_HOME) goTo(g, 0);
+                    else if (key == KeyEvent.VK_END) goTo(g, Viewer.this.replay.getTicks(g));
+                    else if (key == KeyEvent.VK_PAGE_DOWN && g + 1 < Viewer.this.replay.getGameCount()) goTo(g + 1, 0);
+                    else if (key == KeyEvent.VK_PAGE_UP && g > 0) goTo(g - 1, 0);
+                    else if (key == KeyEvent.VK_SPACE) {
+                        if (player.isRunning()) player.stop();
+                        else player.start();
+                        repaint();
+                    } else if (key == KeyEvent.VK_G) askTick();
+                }
+            });
+        }
+
+        private void askTick() {
+            player.stop();
+            String s = JOptionPane.showInputDialog(this, "Go to tick (0-" + replay.getTicks(game) + "):");
+            if (s == null) return;
+            try {
+                goTo(game, Integer.parseInt(s.trim()));
+            } catch (NumberFormatException ex) {
+                // Keep the current tick
+            }
+        }
+
+        private void goTo(int g, int tick) {
+            game = g;
+            engine = replay.seek(g, tick);
+            repaint();
+        }
+
+        public void actionPerformed(ActionEvent e) {
+            int t = engine.getTicks();
+            goTo(game, t + 1);
+            if (engine.getTicks() == t) player.stop();
+        }
+
+        protected void paintComponent(Graphics g0) {
+            super.paintComponent(g0);
+            Graphics2D g = (Graphics2D) g0;
+            int cols = engine.getCols(), rows = engine.getRows();
+            SnakeBody body = engine.getBody();
+
+            // Whole board when it fits at MIN_UNIT, else a window centred on the head
+            int unit = Math.max(MIN_UNIT, Math.min(MAX_UNIT, Math.min(WIDTH / cols, HEIGHT / rows)));
+            int head = body.head();
+            int camX = clamp((head % cols) * unit + unit / 2 - WIDTH / 2, cols * unit - WIDTH);
+            int camY = clamp((head / cols) * unit + unit / 2 - HEIGHT / 2, rows * unit - HEIGHT);
+            g.setColor(new Color(40,40,40));
+            g.drawRect(-camX, -camY, cols * unit, rows * unit);
+
+            int food = engine.getFood();
+            g.setColor(Color.RED);
+            if (food >= 0) g.fillOval(food % cols * unit - camX, food / cols * unit - camY, unit, unit);
+            int c0 = camX / unit, c1 = Math.min(cols - 1, (camX + WIDTH - 1) / unit);
+            int r0 = camY / unit, r1 = Math.min(rows - 1, (camY + HEIGHT - 1) / unit);
+            g.setColor(Color.GREEN);
+            for (int r = r0; r <= r1; r++) {
+                for (int c = c0; c <= c1; c++) {
+                    if (body.isOccupied(r * cols + c)) g.fillRect(c * unit - camX, r * unit - camY, unit, unit);
+                }
+            }
+            g.setColor(engine.isOver() ? Color.RED : Color.WHITE);
+            g.fillRect(head % cols * unit - camX, head / cols * unit - camY, unit, unit);
+
+            int score = replay.getScore(game);
+            g.setColor(new Color(0,0,0,220));
+            g.fillRect(0, HEIGHT, WIDTH, BAR);
+            g.setColor(Color.WHITE);
+            g.setFont(new Font("Arial", Font.BOLD, 22));
+            g.drawString("Game " + (game + 1) + "/" + replay.getGameCount() + "   Tick " + engine.getTicks() + "/"
+                    + replay.getTicks(game) + "   Score " + engine.getScore() + (player.isRunning() ? "   Playing" : ""),
+                    20, HEIGHT + 32);
+            g.setFont(new Font("Arial", Font.PLAIN, 16));
+            g.drawString(cols + "x" + rows + "   " + (score >= 0 ? "Final score " + score : "Unfinished")
+                    + "   Left/Right, Up/Down: step | Space: play | G: go to tick | PgUp/PgDn: game", 20, HEIGHT + 62);
+        }
+
+        private static int clamp(int v, int max) {
+            return Math.max(0, Math.min(v, max));
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: SnakeReplay [--scan] snake.rec [game [tick]]");
+            System.exit(1);
+        }
+        if (args[0].equals("--scan")) {
+            new SnakeReplay(new File(args[1])).scan();
+            return;
+        }
+        final SnakeReplay replay = new SnakeReplay(new File(args[0]));
+        if (replay.getGameCount() == 0) {
+            System.err.println("No games in " + args[0]);
+            System.exit(1);
+        }
+        final int game = args.length > 1 ? Integer.parseInt(args[1]) - 1 : 0;
+        final int tick = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+        SwingUtilities.invokeLater(new Runnable() {
+            public void run() {
+                JFrame frame = new JFrame("Snake Replay");
+                frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+                Viewer viewer = new Viewer(replay, game, tick);
+                frame.add(viewer);
+                frame.pack();
+                frame.setLocationRelativeTo(null);
+                frame.setResizable(false);
+                frame.setVisible(true);
+                viewer.requestFocusInWindow();
+            }
+        });
+    }
+}
@@ -0,0 +1,303 @@
+package com.fams;
+
+// Batched headless Snake for agent training and evaluation: n independent games on the same
+// cols x rows grid stepped in lockstep. State is struct-of-arrays (one flat array per field,
+// game i at a fixed offset), so step() allocates nothing. Movement, growth and food follow
+// SnakeEngine's rules, written out again over those arrays, with the swap-array free set of
+// SnakeFreeCells in place of SnakeEngine's. That is the set SnakeEngine itself uses up to
+// DENSE_FREE_CELLS cells, which is therefore the largest board accepted here, and on those
+// SnakeEngine.reset(seedFor(seed, i)) replays game i's first episode exactly.
+//
+// step(actions) takes one SnakeEngine direction per game and fills rewards() and dones():
+// +1 for food, -1 for dying, and an episode is also cut off (reward 0) after cols * rows
+// steps without food. A finished game is reset in the same step, continuing its own random
+// stream, so results do not depend on the thread count. Games are split into contiguous
+// ranges over the calling thread plus (threads - 1) SnakeLockstep workers that live until
+// close().
+public final class SnakeVecEnv {
+
+    public static final float REWARD_FOOD = 1f;
+    public static final float REWARD_DEATH = -1f;
+
+    private final int envs;
+    private final int cols;
+    private final int rows;
+    private final int cells;
+    private final int ringSize;
+    private final int words;
+
+    private final int[] ring;
+    private final int[] tail;
+    private final int[] length;
+    private final long[] occupied;
+    private final int[] free;
+    private final int[] slot;
+    private final int[] freeSize;
+    private final int[] food;
+    private final int[] direction;
+    private final int[] score;
+    private final int[] hunger;
+    private final int[] lastScore;
+    private final long[] rng;
+    private final float[] rewards;
+    private final boolean[] dones;
+
+    private final SnakeLockstep pool;
+    private int[] actions;
+
+    public SnakeVecEnv(int envs, int cols, int rows, int threads) {
+        if ((long) cols * rows > SnakeEngine.DENSE_FREE_CELLS) {
+            throw new IllegalArgumentException("Board larger than " + SnakeEngine.DENSE_FREE_CELLS + " cells: " + cols + "x" + rows);
+        }
+        this.envs = envs;
+        this.cols = cols;
+        this.rows = rows;
+        cells = cols * rows;
+        ringSize = Integer.highestOneBit(Math.max(1, cells - 1)) << 1;
+        words = (cells + 63) >>> 6;
+
+        ring = new int[envs * ringSize];
+        tail = new int[envs];
+        length = new int[envs];
+        occupied = new long[envs * words];
+        free = new int[envs * cells];
+        slot = new int[envs * cells];
+        freeSize = new int[envs];
+        food = new int[envs];
+        direction = new int[envs];
+        score = new int[envs];
+        hunger = new int[envs];
+        lastScore = new int[envs];
+        rng = new long[envs];
+        rewards = new float[envs];
+        dones = new boolean[envs];
+
+        pool = new SnakeLockstep(envs, threads, "snake-env", new SnakeLockstep.Range() {
+            public void run(int from, int to) {
+                stepRange(from, to);
+            }
+        });
+        reset(0);
+    }
+
+    // Seed SnakeEngine needs to replay game i after reset(seed)
+    public static long seedFor(long seed, int env) {
+        return SnakeEngine.mix(seed + env * 0x632BE59BD9B4E019L);
+    }
+
+    public void reset(long seed) {
+        for (int i = 0; i < envs; i++) {
+            rng[i] = seedFor(seed, i);
+            java.util.Arrays.fill(occupied, i * words, (i + 1) * words, 0L);
+            int fb = i * cells;
+            for (int c = 0; c < cells; c++) {
+                free[fb + c] = c;
+                slot[fb + c] = c;
+            }
+            freeSize[i] = cells;
+            length[i] = 0;
+            resetEnv(i);
+            rewards[i] = 0;
+            dones[i] = false;
+        }
+    }
+
+    // Advances every game by one tick; actions[i] is a SnakeEngine direction for game i
+    public void step(int[] actions) {
+        this.actions = actions;
+        pool.run();
+    }
+
+    private void stepRange(int from, int to) {
+        int[] act = actions;
+        for (int i = from; i < to; i++) stepEnv(i, act[i]);
+    }
+
+    private void stepEnv(int i, int dir) {
+        int d = direction[i];
+        if (dir != (d + 2 & 3)) direction[i] = d = dir & 3;
+        int mask = ringSize - 1;
+        int base = i * ringSize;
+        int head = ring[base + ((tail[i] + length[i] - 1) & mask)];
+        int x = head % cols + SnakeEngine.DX[d];
+        int y = head / cols + SnakeEngine.DY[d];
+        int next = y * cols + x;
+
+        if (x < 0 || x >= cols || y < 0 || y >= rows
+                || (occupied[i * words + (next >>> 6)] & (1L << next)) != 0) {
+            finish(i, REWARD_DEATH);
+            return;
+        }
+
+        ring[base + ((tail[i] + length[i]) & mask)] = next;
+        length[i]++;
+        occupied[i * words + (next >>> 6)] |= 1L << next;
+        removeFree(i, next);
+
+        if (next == food[i]) {
+            score[i] += SnakeEngine.POINTS_PER_FOOD;
+            hunger[i] = 0;
+            food[i] = nextFood(i);
+            rewards[i] = REWARD_FOOD;
+            dones[i] = false;
+            return;
+        }
+
+        int t = ring[base + tail[i]];
+        tail[i] = (tail[i] + 1) & mask;
+        length[i]--;
+        occupied[i * words + (t >>> 6)] &= ~(1L << t);
+        addFree(i, t);
+
+        if (++hunger[i] >= cells) {
+            finish(i, 0f);
+            return;
+        }
+        rewards[i] = 0f;
+        dones[i] = false;
+    }
+
+    private void finish(int i, float reward) {
+        rewards[i] = reward;
+        dones[i] = true;
+        lastScore[i] = score[i];
+        resetEnv(i);
+    }
+
+    // Same start as SnakeEngine.reset(), continuing the game's random stream. Only the old
+    // body's cells are released, so a reset costs O(length) rather than O(cells).
+    private void resetEnv(int i) {
+        int mask = ringSize - 1;
+        for (int k = 0; k < length[i]; k++) {
+            int c = ring[i * ringSize + ((tail[i] + k) & mask)];
+            occupied[i * words + (c >>> 6)] &= ~(1L << c);
+            addFree(i, c);
+        }
+        tail[i] = 0;
+        length[i] = 0;
+        int start = SnakeEngine.startCell(cols, rows);
+        for (int k = 0; k < 3; k++) {
+            int c = start + k;
+            ring[i * ringSize + k] = c;
+            length[i]++;
+            occupied[i * words + (c >>> 6)] |= 1L << c;
+            removeFree(i, c);
+        }
+        direction[i] = SnakeEngine.RIGHT;
+        score[i] = 0;
+        hunger[i] = 0;
+        food[i] = nextFood(i);
+    }
+
+    private void removeFree(int i, int cell) {
+        int fb = i * cells;
+        int s = slot[fb + cell];
+        if (s < 0) return;
+        int last = free[fb + --freeSize[i]];
+        free[fb + s] = last;
+        slot[fb + last] = s;
+        slot[fb + cell] = -1;
+    }
+
+    private void addFree(int i, int cell) {
+        int fb = i * cells;
+        if (slot[fb + cell] >= 0) return;
+        free[fb + freeSize[i]] = cell;
+        slot[fb + cell] = freeSize[i]++;
+    }
+
+    private int nextFood(int i) {
+        int n = freeSize[i];
+        if (n == 0) return -1;
+        rng[i] += 0x9E3779B97F4A7C15L;
+        int pick = (int) (((SnakeEngine.mix(rng[i]) >>> 33) * n) >>> 31);
+        return free[i * cells + pick];
+    }
+
+    public int size() {
+        return envs;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    // Filled by step(); owned by the environment, read them before the next step
+    public float[] rewards() {
+        return rewards;
+    }
+
+    public boolean[] dones() {
+        return dones;
+    }
+
+    public int head(int env) {
+        return ring[env * ringSize + ((tail[env] + length[env] - 1) & (ringSize - 1))];
+    }
+
+    public int length(int env) {
+        return length[env];
+    }
+
+    public int food(int env) {
+        return food[env];
+    }
+
+    public int direction(int env) {
+        return direction[env];
+    }
+
+    public int score(int env) {
+        return score[env];
+    }
+
+    // Score of the episode that most recently ended in this game
+    public int lastScore(int env) {
+        return lastScore[env];
+    }
+
+    public boolean isOccupied(int env, int cell) {
+        return (occupied[env * words + (cell >>> 6)] & (1L << cell)) != 0;
+    }
+
+    public void close() {
+        pool.close();
+    }
+
+    // Throughput check: java com.fams.SnakeVecEnv [envs] [threads] [steps] [cols] [rows]
+    public static void main(String[] args) {
+        int envs = args.length > 0 ? Integer.parseInt(args[0]) : 4096;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int steps = args.length > 2 ? Integer.parseInt(args[2]) : 2000;
+        int cols = args.length > 3 ? Integer.parseInt(args[3]) : 32;
+        int rows = args.length > 4 ? Integer.parseInt(args[4]) : 24;
+        SnakeVecEnv env = new SnakeVecEnv(envs, cols, rows, threads);
+        int[] actions = new int[envs];
+        long state = 1;
+        long episodes = 0, food = 0;
+        long start = System.nanoTime();
+        for (int s = 0; s < steps; s++) {
+            // Random turns, one in eight steps
+            for (int i = 0; i < envs; i++) {
+                state = state * 6364136223846793005L + 1442695040888963407L;
+                int r = (int) (state >>> 59);
+                actions[i] = r < 2 ? (env.direction(i) + (r == 0 ? 1 : 3)) & 3 : env.direction(i);
+            }
+            env.step(actions);
+            boolean[] dones = env.dones();
+            float[] rewards = env.rewards();
+            for (int i = 0; i < envs; i++) {
+                if (dones[i]) episodes++;
+                if (rewards[i] > 0) food++;
+            }
+        }
+        long nanos = System.nanoTime() - start;
+        env.close();
+        System.out.println(String.format("%d envs x %d steps on %d threads: %,d steps/sec  (%,d episodes, %,d food)",
+                envs, steps, threads, (long) envs * steps * 1000000000L / nanos, episodes, food));
+    }
+}
@@ -0,0 +1,66 @@
+package games;
+
+import java.awt.Component;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.image.VolatileImage;
+
+// Content that rarely changes (board squares, grid lines, fixed labels) rendered once into a
+// VolatileImage compatible with the screen and then only blitted. The image is redrawn when
+// the painter's content changes (invalidate()) or when the graphics system drops it, e.g.
+// after a display mode switch; VolatileImage reports both through validate/contentsLost.
+public final class StaticLayer {
+
+    public interface Painter {
+        void paintLayer(Graphics2D g, int width, int height);
+    }
+
+    private final Painter painter;
+    private VolatileImage image;
+    private boolean stale = true;
+
+    public StaticLayer(Painter painter) {
+        this.painter = painter;
+    }
+
+    // Redraw the content on the next draw()
+    public void invalidate() {
+        stale = true;
+    }
+
+    // Draws the layer at (x, y); only the part inside g's clip is copied
+    public void draw(Component owner, Graphics g, int x, int y, int width, int height) {
+        GraphicsConfiguration gc = owner.getGraphicsConfiguration();
+        if (gc == null) {
+            // Not on screen (e.g. printing or headless): nothing to cache against
+            Graphics2D direct = (Graphics2D) g.create(x, y, width, height);
+            try {
+                painter.paintLayer(direct, width, height);
+            } finally {
+                direct.dispose();
+            }
+            return;
+        }
+        do {
+            int status = image == null ? VolatileImage.IMAGE_INCOMPATIBLE : image.validate(gc);
+            if (status == VolatileImage.IMAGE_INCOMPATIBLE || image.getWidth() != width || image.getHeight() != height) {
+                if (image != null) image.flush();
+                image = gc.createCompatibleVolatileImage(width, height);
+                stale = true;
+            } else if (status == VolatileImage.IMAGE_RESTORED) {
+                stale = true;
+            }
+            if (stale) {
+                Graphics2D ig = image.createGraphics();
+                try {
+                    painter.paintLayer(ig, width, height);
+                } finally {
+                    ig.dispose();
+                }
+                stale = false;
+            }
+            g.drawImage(image, x, y, null);
+        } while (image.contentsLost());
+    }
+}